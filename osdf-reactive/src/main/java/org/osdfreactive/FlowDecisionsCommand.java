@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.osdfreactive.networkoperations.FlowDecisionService;
+
+/**
+ * Shows statistics of the flow decision cache.
+ */
+@Command(scope = "onos", name = "flow-decisions",
+        description = "Show statistics of the reactive flow decision cache")
+public class FlowDecisionsCommand extends AbstractShellCommand {
+
+    private static final String FMT = "decisions=%d, hits=%d, misses=%d, expired=%d, coalesced=%d";
+
+    @Override
+    protected void execute() {
+        FlowDecisionService flowDecisionService = get(FlowDecisionService.class);
+        print(FMT, flowDecisionService.size(),
+                flowDecisionService.hitCount(),
+                flowDecisionService.missCount(),
+                flowDecisionService.expiredCount(),
+                flowDecisionService.coalescedCount());
+    }
+}
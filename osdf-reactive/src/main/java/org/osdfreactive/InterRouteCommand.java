@@ -36,6 +36,7 @@ import org.osdfreactive.policystorage.PolicyService;
 import org.osdfreactive.policystorage.PolicyState;
 import org.osdfreactive.trafficprofiles.CreateTrafficProfile;
 import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+import org.osdfreactive.trafficprofiles.TrafficCriteria;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -81,6 +82,10 @@ public class InterRouteCommand extends AbstractShellCommand {
     @Option(name = "-dh", aliases = "--destination hosts", description = "A list of destination hosts",
             required = false, multiValued = false)
     private String dstHosts = null;
+    @Option(name = "-match", aliases = "--match",
+            description = "Match criteria, e.g. ip_proto=udp,dscp=46,udp_dst=5000-5003",
+            required = false, multiValued = false)
+    private String match = null;
 
 
     @Override
@@ -107,7 +112,13 @@ public class InterRouteCommand extends AbstractShellCommand {
         createTrafficProfile = get(CreateTrafficProfile.class);
 
 
-        createTrafficProfile.createTrafficProfile(appType, profileName);
+        try {
+            createTrafficProfile.createTrafficProfile(appType, profileName,
+                    TrafficCriteria.parse(match));
+        } catch (IllegalArgumentException e) {
+            print("Invalid traffic profile: %s", e.getMessage());
+            return;
+        }
         trafficProfile = (DefaultTrafficProfile) createTrafficProfile.getTrafficProfile();
 
         PathSelectionAlgos pathSelectionAlgo;
@@ -187,21 +198,25 @@ public class InterRouteCommand extends AbstractShellCommand {
         }
 
 
-        createPolicy.createPolicy(appType + ":" + profileName,
-                Integer.parseInt(priority),
-                PolicyState.INSTALL_REQ,
-                1,
-                deviceList,
-                srcHostsList,
-                dstHostsList,
-                pathSelectionAlgo,
-                trafficProfile,
-                regionService.getRegion(srcRegionId),
-                regionService.getRegion(dstRegionId),
-                OperationsList.INTER_ROUTE);
+        try {
+            policy = (DefaultPolicy) createPolicy.createPolicy(appType + ":" + profileName,
+                    Integer.parseInt(priority),
+                    PolicyState.INSTALL_REQ,
+                    1,
+                    deviceList,
+                    srcHostsList,
+                    dstHostsList,
+                    pathSelectionAlgo,
+                    trafficProfile,
+                    regionService.getRegion(srcRegionId),
+                    regionService.getRegion(dstRegionId),
+                    OperationsList.INTER_ROUTE);
+        } catch (IllegalStateException e) {
+            print("Policy not created: %s", e.getMessage());
+            return;
+        }
 
 
-        policy = (DefaultPolicy) createPolicy.getPolicy();
         log.info(policy.getDeviceList().toString());
         policyService.addCurrent(policy);
         //policyConflictsMgmtsService.conflictDection();
@@ -33,8 +33,8 @@ public class ListPoliciesCommand extends AbstractShellCommand {
 
 
     private static final String FMT =
-            "id=%s, ProfileName=%s, priority=%s, app=%s,devicesList=%s, srcHostsList=%s " + "dstHostsList=%s" +
-                    "srcRegion=%s,dstRegion=%s,action=%s,";
+            "id=%s, ProfileName=%s, priority=%s, app=%s, match=%s, devicesList=%s, " +
+                    "srcHostsList=%s, dstHostsList=%s, srcRegion=%s, dstRegion=%s, action=%s";
 
     @Override
     protected void execute() {
@@ -49,6 +49,7 @@ public class ListPoliciesCommand extends AbstractShellCommand {
                     policy.getTrafficProfile().getTrafficProfileId().getProfileName(),
                     policy.getPriority(),
                     policy.getTrafficProfile().getApplicationType(),
+                    policy.getTrafficProfile().getCriteriaSet(),
                     policy.getDeviceList().toString(),
                     policy.getSrcHostsList().toString(),
                     policy.getDstHostsList().toString(),
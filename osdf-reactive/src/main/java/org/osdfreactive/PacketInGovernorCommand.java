@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.osdfreactive.networkoperations.PacketInGovernorService;
+
+/**
+ * Shows statistics of the packet-in governor.
+ */
+@Command(scope = "onos", name = "packet-in-governor",
+        description = "Show statistics of the packet-in governor")
+public class PacketInGovernorCommand extends AbstractShellCommand {
+
+    private static final String FMT = "passed=%d, deviceShed=%d, hostShed=%d, dropRules=%d";
+    private static final String DEVICE_FMT = "  device=%s, shed=%d";
+
+    @Override
+    protected void execute() {
+        PacketInGovernorService governorService = get(PacketInGovernorService.class);
+        print(FMT, governorService.passedCount(),
+                governorService.deviceShedCount(),
+                governorService.hostShedCount(),
+                governorService.dropRuleCount());
+        governorService.shedCountsByDevice().forEach(
+                (deviceId, count) -> print(DEVICE_FMT, deviceId, count));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.osdfreactive.networkoperations.PacketPipelineService;
+
+import java.util.List;
+
+/**
+ * Shows statistics of the packet-in pipeline.
+ */
+@Command(scope = "onos", name = "packet-pipeline",
+        description = "Show latency and queue statistics of the packet-in pipeline")
+public class PacketPipelineCommand extends AbstractShellCommand {
+
+    private static final String STAGE_FMT = "stage=%s, count=%d, avgMicros=%d, maxMicros=%d";
+    private static final String QUEUE_FMT = "worker=%d, queued=%d";
+    private static final String REJECTED_FMT = "rejected=%d";
+    private static final long NANOS_PER_MICRO = 1000;
+
+    @Override
+    protected void execute() {
+        PacketPipelineService pipelineService = get(PacketPipelineService.class);
+        pipelineService.getStageStatistics().forEach(
+                (stage, statistics) -> print(STAGE_FMT, stage, statistics.count(),
+                        statistics.averageNanos() / NANOS_PER_MICRO,
+                        statistics.maxNanos() / NANOS_PER_MICRO));
+        List<Integer> depths = pipelineService.getQueueDepths();
+        for (int i = 0; i < depths.size(); i++) {
+            print(QUEUE_FMT, i, depths.get(i));
+        }
+        print(REJECTED_FMT, pipelineService.rejectedCount());
+    }
+}
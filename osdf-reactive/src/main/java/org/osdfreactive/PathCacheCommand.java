@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.osdfreactive.policyparser.PathCacheInterface;
+import org.osdfreactive.policyparser.PathSelectionInterface;
+import org.osdfreactive.policyparser.PrecomputedPathInterface;
+
+/**
+ * Shows statistics of the path cache and the flows assigned to each ECMP
+ * path.
+ */
+@Command(scope = "onos", name = "path-cache",
+        description = "Show statistics of the path cache and of ECMP paths")
+public class PathCacheCommand extends AbstractShellCommand {
+
+    private static final String FMT = "size=%d, hits=%d, misses=%d, hitRatio=%.2f, " +
+            "invalidations=%d, avgRecomputeMicros=%d";
+    private static final String PRECOMPUTED_FMT = "nextHopTables=%d, builds=%d";
+    private static final String ECMP_FMT = "  ecmpFlows=%d, path=%s";
+    private static final long NANOS_PER_MICRO = 1000;
+
+    @Override
+    protected void execute() {
+        PathCacheInterface pathCache = get(PathCacheInterface.class);
+        long hits = pathCache.hitCount();
+        long lookups = hits + pathCache.missCount();
+        print(FMT, pathCache.size(), hits, pathCache.missCount(),
+                lookups == 0 ? 0.0 : (double) hits / lookups,
+                pathCache.invalidationCount(),
+                pathCache.averageRecomputeNanos() / NANOS_PER_MICRO);
+        PrecomputedPathInterface precomputedPaths = get(PrecomputedPathInterface.class);
+        print(PRECOMPUTED_FMT, precomputedPaths.tableCount(), precomputedPaths.buildCount());
+        get(PathSelectionInterface.class).getPathFlowCounts().forEach(
+                (links, count) -> print(ECMP_FMT, count, links));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.net.DeviceId;
+import org.osdfreactive.networkoperations.PathInstallService;
+
+import java.util.Map;
+
+/**
+ * Shows the number of policy rules in the flow table of each device and
+ * the number of rules of each policy.
+ */
+@Command(scope = "onos", name = "policy-rule-counts",
+        description = "Show the number of policy rules per device and per policy")
+public class PolicyRuleCountsCommand extends AbstractShellCommand {
+
+    private static final String FMT = "devices=%d, rules=%d";
+    private static final String DEVICE_FMT = "  device=%s, rules=%d";
+    private static final String POLICY_FMT = "  policyId=%d, rules=%d";
+
+    @Override
+    protected void execute() {
+        PathInstallService pathInstallService = get(PathInstallService.class);
+        Map<DeviceId, Long> counts = pathInstallService.ruleCountsByDevice();
+        print(FMT, counts.size(), counts.values().stream().mapToLong(Long::longValue).sum());
+        counts.forEach((deviceId, count) -> print(DEVICE_FMT, deviceId, count));
+        pathInstallService.ruleCountsByPolicy()
+                .forEach((policyId, count) -> print(POLICY_FMT, policyId, count));
+    }
+}
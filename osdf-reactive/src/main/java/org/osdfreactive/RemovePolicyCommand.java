@@ -20,11 +20,15 @@ import org.apache.karaf.shell.commands.Argument;
 import org.apache.karaf.shell.commands.Command;
 import org.onosproject.cli.AbstractShellCommand;
 import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.Policy;
 import org.osdfreactive.policystorage.PolicyEvent;
 import org.osdfreactive.policystorage.PolicyListener;
 import org.osdfreactive.policystorage.PolicyService;
 import org.slf4j.Logger;
 
+import java.util.Collection;
+import java.util.stream.Collectors;
+
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -38,7 +42,7 @@ public class RemovePolicyCommand extends AbstractShellCommand {
     //protected PolicyService policyService;
 
     private final Logger log = getLogger(getClass());
-    @Argument(index = 0, name = "policyID", description = "PolicyID",
+    @Argument(index = 0, name = "policyID", description = "Policy ID or policy name",
             required = true, multiValued = false)
     private String policyID = null;
 
@@ -51,7 +55,19 @@ public class RemovePolicyCommand extends AbstractShellCommand {
 
         policyService.addListener(policyListener);
         DefaultPolicy policy = (DefaultPolicy) policyService.getPolicy(policyID);
+        if (policy == null) {
+            Collection<Policy> named = policyService.getPoliciesByName(policyID);
+            if (named.isEmpty()) {
+                print("Policy %s not found", policyID);
+            } else {
+                print("Policy name %s is used by policies %s, remove them by ID", policyID,
+                        named.stream().map(p -> p.getPolicyId().getPolicyId()).collect(Collectors.toList()));
+            }
+            return;
+        }
+        // Flow rules are removed in the background.
         policyService.removeCurrentPolicy(policy);
+        print("Policy %s is being withdrawn", policyID);
 
 
     }
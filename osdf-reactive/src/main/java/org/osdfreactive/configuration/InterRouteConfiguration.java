@@ -17,18 +17,13 @@
 package org.osdfreactive.configuration;
 
 
-import com.google.common.collect.Maps;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
+import com.google.common.collect.ImmutableSet;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
-import org.onlab.packet.Ip4Address;
-import org.onlab.packet.Ip6Address;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.IpPrefix;
 import org.onlab.packet.MacAddress;
@@ -43,8 +38,6 @@ import org.onosproject.net.config.basics.SubjectFactories;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -57,8 +50,6 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
 
 
     private final Logger log = LoggerFactory.getLogger(getClass());
-    private final Map<String, String> ipPrefixRegionMap4 = Maps.newConcurrentMap();
-    private final Map<String, String> ipPrefixRegionMap6 = Maps.newConcurrentMap();
 
     private final InternalNetworkConfigListener configListener =
             new InternalNetworkConfigListener();
@@ -70,14 +61,10 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
     protected CoreService coreService;
 
 
-    private Set<IpAddress> gatewayIpAddresses = new HashSet<>();
-    private InvertedRadixTree<LocalIpPrefixEntry>
-            localPrefixTable4 = new ConcurrentInvertedRadixTree<>(
-            new DefaultByteArrayNodeFactory());
-    private InvertedRadixTree<LocalIpPrefixEntry>
-            localPrefixTable6 = new ConcurrentInvertedRadixTree<>(
-            new DefaultByteArrayNodeFactory());
-    private MacAddress virtualGatewayMacAddress;
+    private volatile Set<IpAddress> gatewayIpAddresses = ImmutableSet.of();
+    private volatile RegionCache regionCache =
+            new RegionCache(LocalPrefixTable.EMPTY, RegionCache.DEFAULT_SIZE_BITS);
+    private volatile MacAddress virtualGatewayMacAddress;
     private ConfigFactory<ApplicationId, InterRouteConfig>
             interRouteConfigConfigFactory =
             new ConfigFactory<ApplicationId, InterRouteConfig>(
@@ -90,21 +77,6 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
                 }
             };
 
-    public static String createBinaryString(IpPrefix ipPrefix) {
-        byte[] octets = ipPrefix.address().toOctets();
-        StringBuilder result = new StringBuilder(ipPrefix.prefixLength());
-        result.append("0");
-        for (int i = 0; i < ipPrefix.prefixLength(); i++) {
-            int byteOffset = i / Byte.SIZE;
-            int bitOffset = i % Byte.SIZE;
-            int mask = 1 << (Byte.SIZE - 1 - bitOffset);
-            byte value = octets[byteOffset];
-            boolean isSet = ((value & mask) != 0);
-            result.append(isSet ? "1" : "0");
-        }
-        return result.toString();
-    }
-
     @Activate
     public void activate() {
         configService.addListener(configListener);
@@ -122,40 +94,37 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
 
     /**
      * Set up routing information from configuration.
+     * <p>
+     * A new prefix table is built from the configuration and swapped with
+     * the current one together with a fresh region cache, so lookups always
+     * see a consistent snapshot.
      */
-
-
     private void setUpConfiguration() {
-
-
         InterRouteConfig config = configService.getConfig(
                 coreService.registerApplication(InterRouteConfigurationService
                         .INTER_ROUTING_APP_ID), InterRouteConfigurationService.CONFIG_CLASS);
 
-
         if (config == null) {
             log.warn("No inter routing config available!");
+            regionCache = new RegionCache(LocalPrefixTable.EMPTY, RegionCache.DEFAULT_SIZE_BITS);
+            gatewayIpAddresses = ImmutableSet.of();
             return;
         }
 
-
+        LocalPrefixTable.Builder tableBuilder = LocalPrefixTable.builder();
+        ImmutableSet.Builder<IpAddress> gatewayBuilder = ImmutableSet.builder();
         for (LocalIpPrefixEntry entry : config.localIp4PrefixEntries()) {
-            localPrefixTable4.put(createBinaryString(entry.ipPrefix()), entry);
-            gatewayIpAddresses.add(entry.getGatewayIpAddress());
-            ipPrefixRegionMap4.put(createBinaryString(entry.ipPrefix()), entry.getRegion());
-
-
+            tableBuilder.add(entry);
+            gatewayBuilder.add(entry.getGatewayIpAddress());
         }
         for (LocalIpPrefixEntry entry : config.localIp6PrefixEntries()) {
-            localPrefixTable6.put(createBinaryString(entry.ipPrefix()), entry);
-            gatewayIpAddresses.add(entry.getGatewayIpAddress());
-            ipPrefixRegionMap6.put(createBinaryString(entry.ipPrefix()), entry.getRegion());
-
+            tableBuilder.add(entry);
+            gatewayBuilder.add(entry.getGatewayIpAddress());
         }
 
+        regionCache = new RegionCache(tableBuilder.build(), RegionCache.DEFAULT_SIZE_BITS);
+        gatewayIpAddresses = gatewayBuilder.build();
         virtualGatewayMacAddress = config.virtualGatewayMacAddress();
-
-
     }
 
     /**
@@ -166,18 +135,7 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
      */
     @Override
     public boolean isIpAddressLocal(IpAddress ipAddress) {
-        if (ipAddress.isIp4()) {
-
-            return localPrefixTable4.getValuesForKeysPrefixing(
-                    createBinaryString(
-                            IpPrefix.valueOf(ipAddress, Ip4Address.BIT_LENGTH)))
-                    .iterator().hasNext();
-        } else {
-            return localPrefixTable6.getValuesForKeysPrefixing(
-                    createBinaryString(
-                            IpPrefix.valueOf(ipAddress, Ip6Address.BIT_LENGTH)))
-                    .iterator().hasNext();
-        }
+        return regionCache.table().lookup(ipAddress) != null;
     }
 
     /**
@@ -188,25 +146,40 @@ public class InterRouteConfiguration implements InterRouteConfigurationService {
      */
     @Override
     public boolean isIpPrefixLocal(IpPrefix ipPrefix) {
-        return (localPrefixTable4.getValueForExactKey(
-                createBinaryString(ipPrefix)) != null ||
-                localPrefixTable6.getValueForExactKey(
-                        createBinaryString(ipPrefix)) != null);
-
-
+        return regionCache.table().exactMatch(ipPrefix) != null;
     }
 
     /**
-     * Returns the region ID based on given IP prefix.
+     * Returns the region ID of the most specific local prefix covering
+     * the given IP prefix.
      *
      * @param ipPrefix ip prefix
-     * @return region ID
+     * @return region ID, or null if the prefix is not local
      */
     @Override
     public String getRegion(IpPrefix ipPrefix) {
+        LocalIpPrefixEntry entry = regionCache.table().lookup(ipPrefix);
+        return entry == null ? null : entry.getRegion();
+    }
+
+    @Override
+    public String getRegion(IpAddress ipAddress) {
+        if (ipAddress.isIp4()) {
+            return regionCache.region(ipAddress.getIp4Address().toInt());
+        }
+        LocalIpPrefixEntry entry = regionCache.table().lookup(ipAddress);
+        return entry == null ? null : entry.getRegion();
+    }
 
-        return ipPrefixRegionMap4.get(createBinaryString(ipPrefix));
+    @Override
+    public String getIp4Region(int ip4Address) {
+        return regionCache.region(ip4Address);
+    }
 
+    @Override
+    public IpPrefix getIp4AggregatePrefix(int ip4Address) {
+        LocalIpPrefixEntry entry = regionCache.table().lookupLeaf4(ip4Address);
+        return entry == null ? null : entry.ipPrefix();
     }
 
     @Override
@@ -64,6 +64,34 @@ public interface InterRouteConfigurationService {
      */
     String getRegion(IpPrefix ipPrefix);
 
+    /**
+     * Returns the region ID of the longest local prefix matching a given
+     * IP address.
+     *
+     * @param ipAddress IP address
+     * @return region ID, or null if the address is not local
+     */
+    String getRegion(IpAddress ipAddress);
+
+    /**
+     * Returns the region ID of the longest local prefix matching a given
+     * IPv4 address; resolutions are cached per address.
+     *
+     * @param ip4Address IPv4 address as an int
+     * @return region ID, or null if the address is not local
+     */
+    String getIp4Region(int ip4Address);
+
+    /**
+     * Returns the local prefix covering an IPv4 address when every address
+     * it covers resolves to the same region, i.e. when no other local
+     * prefix is nested in it.
+     *
+     * @param ip4Address IPv4 address as an int
+     * @return local prefix, or null if there is none
+     */
+    IpPrefix getIp4AggregatePrefix(int ip4Address);
+
 
     int getPrefixLen(IpPrefix ipPrefix);
 
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.configuration;
+
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable longest prefix match table of local IP prefix entries.
+ * <p>
+ * IPv4 and IPv6 prefixes are stored in two binary tries encoded as
+ * primitive arrays, so that lookups on int/long keys do not allocate.
+ * A table is never modified once built; configuration changes build a
+ * new table and swap it.
+ */
+public final class LocalPrefixTable {
+
+    /**
+     * Table without any entry.
+     */
+    public static final LocalPrefixTable EMPTY = builder().build();
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private final Trie trie4;
+    private final Trie trie6;
+    private final LocalIpPrefixEntry[] entries;
+
+    private LocalPrefixTable(Trie trie4, Trie trie6, LocalIpPrefixEntry[] entries) {
+        this.trie4 = trie4;
+        this.trie6 = trie6;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns a new table builder.
+     *
+     * @return table builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the entry with the longest prefix matching an IPv4 address.
+     *
+     * @param address IPv4 address as an int
+     * @return matching entry, or null if there is none
+     */
+    public LocalIpPrefixEntry lookup4(int address) {
+        return entry(trie4.match4(address, Ip4Address.BIT_LENGTH));
+    }
+
+    /**
+     * Returns the entry with the longest prefix matching an IPv4 address,
+     * provided no other prefix of the table is nested in it. Every address
+     * covered by such a prefix resolves to its entry.
+     *
+     * @param address IPv4 address as an int
+     * @return matching entry, or null if there is none or if it has nested
+     * prefixes
+     */
+    public LocalIpPrefixEntry lookupLeaf4(int address) {
+        return entry(trie4.leafMatch4(address, Ip4Address.BIT_LENGTH));
+    }
+
+    /**
+     * Returns the entry with the longest prefix matching an IPv6 address.
+     *
+     * @param high 64 most significant bits of the IPv6 address
+     * @param low  64 least significant bits of the IPv6 address
+     * @return matching entry, or null if there is none
+     */
+    public LocalIpPrefixEntry lookup6(long high, long low) {
+        return entry(trie6.match6(high, low, Ip6Address.BIT_LENGTH));
+    }
+
+    /**
+     * Returns the entry with the longest prefix matching an IP address.
+     *
+     * @param address IP address
+     * @return matching entry, or null if there is none
+     */
+    public LocalIpPrefixEntry lookup(IpAddress address) {
+        if (address.isIp4()) {
+            return lookup4(address.getIp4Address().toInt());
+        }
+        byte[] octets = address.toOctets();
+        return lookup6(high(octets), low(octets));
+    }
+
+    /**
+     * Returns the entry with the longest prefix covering an IP prefix,
+     * i.e. the most specific entry whose prefix contains the given one.
+     *
+     * @param prefix IP prefix
+     * @return covering entry, or null if there is none
+     */
+    public LocalIpPrefixEntry lookup(IpPrefix prefix) {
+        if (prefix.isIp4()) {
+            return entry(trie4.match4(prefix.address().getIp4Address().toInt(),
+                    prefix.prefixLength()));
+        }
+        byte[] octets = prefix.address().toOctets();
+        return entry(trie6.match6(high(octets), low(octets), prefix.prefixLength()));
+    }
+
+    /**
+     * Returns the entry configured for exactly the given prefix.
+     *
+     * @param prefix IP prefix
+     * @return entry, or null if the prefix is not configured
+     */
+    public LocalIpPrefixEntry exactMatch(IpPrefix prefix) {
+        LocalIpPrefixEntry entry = lookup(prefix);
+        if (entry != null && entry.ipPrefix().prefixLength() == prefix.prefixLength()) {
+            return entry;
+        }
+        return null;
+    }
+
+    private LocalIpPrefixEntry entry(int index) {
+        return index == NONE ? null : entries[index];
+    }
+
+    private static long high(byte[] octets) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << Byte.SIZE) | (octets[i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long low(byte[] octets) {
+        long value = 0;
+        for (int i = Long.BYTES; i < 2 * Long.BYTES; i++) {
+            value = (value << Byte.SIZE) | (octets[i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Binary trie stored as parallel arrays of child and value indexes.
+     */
+    private static final class Trie {
+        private final int[] zero;
+        private final int[] one;
+        private final int[] value;
+
+        private Trie(int[] zero, int[] one, int[] value) {
+            this.zero = zero;
+            this.one = one;
+            this.value = value;
+        }
+
+        private int match4(int address, int length) {
+            int node = ROOT;
+            int best = value[ROOT];
+            for (int bit = 0; bit < length; bit++) {
+                node = ((address >>> (Integer.SIZE - 1 - bit)) & 1) == 0 ? zero[node] : one[node];
+                if (node == NONE) {
+                    break;
+                }
+                if (value[node] != NONE) {
+                    best = value[node];
+                }
+            }
+            return best;
+        }
+
+        private int leafMatch4(int address, int length) {
+            int node = ROOT;
+            int best = value[ROOT] == NONE ? NONE : ROOT;
+            for (int bit = 0; bit < length; bit++) {
+                node = ((address >>> (Integer.SIZE - 1 - bit)) & 1) == 0 ? zero[node] : one[node];
+                if (node == NONE) {
+                    break;
+                }
+                if (value[node] != NONE) {
+                    best = node;
+                }
+            }
+            if (best == NONE || zero[best] != NONE || one[best] != NONE) {
+                return NONE;
+            }
+            return value[best];
+        }
+
+        private int match6(long high, long low, int length) {
+            int node = ROOT;
+            int best = value[ROOT];
+            for (int bit = 0; bit < length; bit++) {
+                long bits = bit < Long.SIZE ? high >>> (Long.SIZE - 1 - bit)
+                        : low >>> (2 * Long.SIZE - 1 - bit);
+                node = (bits & 1) == 0 ? zero[node] : one[node];
+                if (node == NONE) {
+                    break;
+                }
+                if (value[node] != NONE) {
+                    best = value[node];
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Growable trie used while building a table.
+     */
+    private static final class TrieBuilder {
+        private int[] zero = new int[16];
+        private int[] one = new int[16];
+        private int[] value = new int[16];
+        private int size;
+
+        private TrieBuilder() {
+            newNode();
+        }
+
+        private int newNode() {
+            if (size == zero.length) {
+                zero = Arrays.copyOf(zero, size * 2);
+                one = Arrays.copyOf(one, size * 2);
+                value = Arrays.copyOf(value, size * 2);
+            }
+            zero[size] = NONE;
+            one[size] = NONE;
+            value[size] = NONE;
+            return size++;
+        }
+
+        private void insert(byte[] octets, int length, int entryIndex) {
+            int node = ROOT;
+            for (int bit = 0; bit < length; bit++) {
+                boolean set = (octets[bit / Byte.SIZE] & (1 << (Byte.SIZE - 1 - bit % Byte.SIZE))) != 0;
+                int child = set ? one[node] : zero[node];
+                if (child == NONE) {
+                    child = newNode();
+                    if (set) {
+                        one[node] = child;
+                    } else {
+                        zero[node] = child;
+                    }
+                }
+                node = child;
+            }
+            value[node] = entryIndex;
+        }
+
+        private Trie build() {
+            return new Trie(Arrays.copyOf(zero, size),
+                    Arrays.copyOf(one, size),
+                    Arrays.copyOf(value, size));
+        }
+    }
+
+    /**
+     * Builder of local prefix tables.
+     */
+    public static final class Builder {
+        private final TrieBuilder trie4 = new TrieBuilder();
+        private final TrieBuilder trie6 = new TrieBuilder();
+        private final List<LocalIpPrefixEntry> entries = new ArrayList<>();
+        // Index of the entry of each prefix added so far.
+        private final Map<IpPrefix, Integer> indexes = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a local IP prefix entry; an entry with the same prefix as a
+         * previous one replaces it.
+         *
+         * @param entry local IP prefix entry
+         * @return this builder
+         */
+        public Builder add(LocalIpPrefixEntry entry) {
+            IpPrefix prefix = entry.ipPrefix();
+            Integer index = indexes.get(prefix);
+            if (index != null) {
+                entries.set(index, entry);
+                return this;
+            }
+            TrieBuilder trie = prefix.isIp4() ? trie4 : trie6;
+            trie.insert(prefix.address().toOctets(), prefix.prefixLength(), entries.size());
+            indexes.put(prefix, entries.size());
+            entries.add(entry);
+            return this;
+        }
+
+        /**
+         * Builds an immutable table.
+         *
+         * @return local prefix table
+         */
+        public LocalPrefixTable build() {
+            return new LocalPrefixTable(trie4.build(), trie6.build(),
+                    entries.toArray(new LocalIpPrefixEntry[entries.size()]));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.configuration;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Direct-mapped cache of IPv4 address to region ID resolutions made on a
+ * given local prefix table.
+ * <p>
+ * A cache is bound to a single table snapshot; when the table is swapped
+ * a new cache is created with it, so results never outlive the
+ * configuration they were computed from. Colliding addresses simply
+ * overwrite each other.
+ */
+public final class RegionCache {
+
+    /**
+     * Default number of cache slots.
+     */
+    public static final int DEFAULT_SIZE_BITS = 12;
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final LocalPrefixTable table;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int shift;
+
+    /**
+     * Creates a cache over a local prefix table.
+     *
+     * @param table    local prefix table
+     * @param sizeBits base 2 logarithm of the number of slots
+     */
+    public RegionCache(LocalPrefixTable table, int sizeBits) {
+        this.table = table;
+        this.slots = new AtomicReferenceArray<>(1 << sizeBits);
+        this.shift = Integer.SIZE - sizeBits;
+    }
+
+    /**
+     * Returns the table the cache resolves against.
+     *
+     * @return local prefix table
+     */
+    public LocalPrefixTable table() {
+        return table;
+    }
+
+    /**
+     * Returns the region ID of the longest local prefix matching an IPv4
+     * address.
+     *
+     * @param address IPv4 address as an int
+     * @return region ID, or null if the address is not local
+     */
+    public String region(int address) {
+        int slot = (address * GOLDEN_RATIO) >>> shift;
+        Entry entry = slots.get(slot);
+        if (entry != null && entry.address == address) {
+            return entry.region;
+        }
+
+        LocalIpPrefixEntry prefixEntry = table.lookup4(address);
+        String region = prefixEntry == null ? null : prefixEntry.getRegion();
+        slots.lazySet(slot, new Entry(address, region));
+        return region;
+    }
+
+    /**
+     * Immutable cached resolution.
+     */
+    private static final class Entry {
+        private final int address;
+        private final String region;
+
+        private Entry(int address, String region) {
+            this.address = address;
+            this.region = region;
+        }
+    }
+}
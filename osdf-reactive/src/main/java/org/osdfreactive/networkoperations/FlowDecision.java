@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.net.flow.TrafficTreatment;
+
+/**
+ * Forwarding decision taken for a reactive flow: the treatment used to
+ * packet-out its packets until the installed rules take over.
+ */
+public final class FlowDecision {
+
+    private final TrafficTreatment treatment;
+    private final long expiresAt;
+
+    /**
+     * Creates a flow decision.
+     *
+     * @param treatment treatment to apply on packet-out
+     * @param expiresAt expiry time in nanoseconds, as given by {@link System#nanoTime()}
+     */
+    public FlowDecision(TrafficTreatment treatment, long expiresAt) {
+        this.treatment = treatment;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Returns the treatment to apply on packet-out.
+     *
+     * @return traffic treatment
+     */
+    public TrafficTreatment treatment() {
+        return treatment;
+    }
+
+    /**
+     * Evaluates whether the decision has expired.
+     *
+     * @param now current time in nanoseconds
+     * @return true if the decision has expired, otherwise false
+     */
+    public boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("treatment", treatment)
+                .add("expiresAt", expiresAt)
+                .toString();
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleId;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.onosproject.net.packet.DefaultOutboundPacket;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketService;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policystorage.PolicyEvent;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Bounded, time expiring implementation of the flow decision service.
+ */
+@Component(immediate = true)
+@Service
+public class FlowDecisionManager implements FlowDecisionService {
+
+    private static final int DEFAULT_MAX_DECISIONS = 10000;
+    private static final int DEFAULT_SETUP_TIMEOUT = 10;
+    private static final String INTRA_APP_NAME = "org.onosproject.PolicyBasedRouting";
+    private static final String INTER_APP_NAME = "org.onosproject.InterRouting";
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PacketService packetService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+
+    @Property(name = "maxDecisions", intValue = DEFAULT_MAX_DECISIONS,
+            label = "Configure the maximum number of cached flow decisions; " +
+                    "default is 10000")
+    private int maxDecisions = DEFAULT_MAX_DECISIONS;
+
+    @Property(name = "setupTimeout", intValue = DEFAULT_SETUP_TIMEOUT,
+            label = "Configure the time after which a flow setup which has not completed " +
+                    "is aborted in seconds; default is 10 sec")
+    private volatile int setupTimeout = DEFAULT_SETUP_TIMEOUT;
+
+    private final PolicyListener policyListener = new InternalPolicyListener();
+    private final FlowRuleListener flowRuleListener = new InternalFlowRuleListener();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final ConcurrentMap<FlowKey, CompletableFuture<FlowDecision>> setups =
+            Maps.newConcurrentMap();
+    // Flows whose decision is bound to an installed rule, by rule; a rule
+    // leaves the index when it is removed from its device.
+    private final ConcurrentMap<FlowRuleId, Set<FlowKey>> keysByRule = Maps.newConcurrentMap();
+    private Set<ApplicationId> appIds = ImmutableSet.of();
+
+    private volatile Cache<FlowKey, FlowDecision> decisions = newCache(DEFAULT_MAX_DECISIONS);
+    private ScheduledThreadPoolExecutor timeoutExecutor;
+
+    @Activate
+    public void activate(ComponentContext context) {
+        timeoutExecutor = new ScheduledThreadPoolExecutor(1,
+                groupedThreads("onos/osdf-reactive", "setup-timeout", log));
+        timeoutExecutor.setRemoveOnCancelPolicy(true);
+        appIds = ImmutableSet.of(coreService.registerApplication(INTRA_APP_NAME),
+                coreService.registerApplication(INTER_APP_NAME));
+        readComponentConfiguration(context);
+        policyService.addListener(policyListener);
+        flowRuleService.addListener(flowRuleListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        policyService.removeListener(policyListener);
+        flowRuleService.removeListener(flowRuleListener);
+        decisions.invalidateAll();
+        keysByRule.clear();
+        setups.keySet().forEach(this::abortSetup);
+        timeoutExecutor.shutdownNow();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        int newMaxDecisions = Tools.getIntegerProperty(properties, "maxDecisions", DEFAULT_MAX_DECISIONS);
+        if (newMaxDecisions != maxDecisions) {
+            maxDecisions = newMaxDecisions;
+            decisions = newCache(maxDecisions);
+        }
+        log.info("Configured. Maximum number of flow decisions is configured to {}", maxDecisions);
+
+        setupTimeout = Tools.getIntegerProperty(properties, "setupTimeout", DEFAULT_SETUP_TIMEOUT);
+        log.info("Configured. Flow setup timeout is configured to {} sec", setupTimeout);
+    }
+
+    private static Cache<FlowKey, FlowDecision> newCache(int maximumSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public FlowDecision getDecision(FlowKey key) {
+        Cache<FlowKey, FlowDecision> cache = decisions;
+        FlowDecision decision = cache.getIfPresent(key);
+        if (decision == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (decision.isExpired(System.nanoTime())) {
+            cache.asMap().remove(key, decision);
+            expired.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return decision;
+    }
+
+    @Override
+    public boolean claimSetup(FlowKey key, PacketContext context) {
+        FlowDecision decision = getDecision(key);
+        if (decision != null) {
+            emit(key, decision, context.inPacket().unparsed());
+            return false;
+        }
+
+        CompletableFuture<FlowDecision> setup = new CompletableFuture<>();
+        CompletableFuture<FlowDecision> pending = setups.putIfAbsent(key, setup);
+        if (pending == null) {
+            // The previous owner may have completed between the lookup and
+            // the claim; its decision is recorded before its setup is removed.
+            decision = decisions.getIfPresent(key);
+            if (decision == null || decision.isExpired(System.nanoTime())) {
+                // An install callback which never fires must not hold the
+                // packets of the flow forever.
+                ScheduledFuture<?> timeout = timeoutExecutor.schedule(
+                        () -> timeoutSetup(key, setup), setupTimeout, TimeUnit.SECONDS);
+                setup.whenComplete((setupDecision, error) -> timeout.cancel(false));
+                return true;
+            }
+            setups.remove(key, setup);
+            setup.complete(decision);
+            pending = setup;
+        }
+
+        coalesced.incrementAndGet();
+        ByteBuffer data = context.inPacket().unparsed();
+        pending.thenAccept(pendingDecision -> {
+            if (pendingDecision != null) {
+                emit(key, pendingDecision, data);
+            }
+        });
+        return false;
+    }
+
+    @Override
+    public void completeSetup(FlowKey key, TrafficTreatment treatment, int idleTimeout) {
+        long expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(idleTimeout);
+        FlowDecision decision = new FlowDecision(treatment, expiresAt);
+        decisions.put(key, decision);
+        CompletableFuture<FlowDecision> setup = setups.remove(key);
+        if (setup != null) {
+            setup.complete(decision);
+        }
+    }
+
+    @Override
+    public void bindRules(FlowKey key, Collection<? extends FlowRule> rules) {
+        for (FlowRule rule : rules) {
+            keysByRule.computeIfAbsent(rule.id(), id -> Sets.newConcurrentHashSet()).add(key);
+        }
+    }
+
+    @Override
+    public void abortSetup(FlowKey key) {
+        CompletableFuture<FlowDecision> setup = setups.remove(key);
+        if (setup != null) {
+            setup.complete(null);
+        }
+    }
+
+    private void timeoutSetup(FlowKey key, CompletableFuture<FlowDecision> setup) {
+        if (setups.remove(key, setup)) {
+            log.warn("Setup of flow {} timed out, dropping its pending packets", key);
+            setup.complete(null);
+        }
+    }
+
+    private void emit(FlowKey key, FlowDecision decision, ByteBuffer data) {
+        packetService.emit(new DefaultOutboundPacket(key.ingress().deviceId(),
+                decision.treatment(), data));
+    }
+
+    @Override
+    public void invalidate(FlowKey key) {
+        decisions.invalidate(key);
+    }
+
+    @Override
+    public void invalidatePolicy(int policyId) {
+        decisions.asMap().keySet().removeIf(key -> key.policyId() == policyId);
+    }
+
+    @Override
+    public void invalidateAll() {
+        decisions.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+        return decisions.size();
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long expiredCount() {
+        return expired.get();
+    }
+
+    @Override
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Evaluates whether a rule has been installed by one of the routing
+     * applications for a policy.
+     *
+     * @param rule a flow rule
+     * @return true if the cookie of the rule has been issued by a routing application
+     */
+    private boolean isPolicyRule(FlowRule rule) {
+        for (ApplicationId appId : appIds) {
+            if (PolicyCookie.isIssuedBy(rule.id().value(), appId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the decisions of the flows whose rules are removed from their
+     * devices, so that their packet-ins set them up again.
+     */
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            if (event.type() != FlowRuleEvent.Type.RULE_REMOVED || !isPolicyRule(event.subject())) {
+                return;
+            }
+            Set<FlowKey> keys = keysByRule.remove(event.subject().id());
+            if (keys != null) {
+                decisions.invalidateAll(keys);
+            }
+        }
+    }
+
+    /**
+     * Drops the decisions of policies which are withdrawn.
+     */
+    private class InternalPolicyListener implements PolicyListener {
+        @Override
+        public void event(PolicyEvent event) {
+            switch (event.type()) {
+                case WITHDRAW_REQ:
+                case WITHDRAWN:
+                case PURGED:
+                    invalidatePolicy(event.subject().getPolicyId().getPolicyId());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.onosproject.net.packet.PacketContext;
+
+import java.util.Collection;
+
+/**
+ * Cache of forwarding decisions of reactive flows whose rules are being
+ * installed, so that packet-in bursts of the same flow are only
+ * packet-out instead of being routed again.
+ * <p>
+ * Flow setups are also deduplicated: only the first packet-in of a flow
+ * claims its setup, concurrent packet-ins of the same flow are sent out
+ * once the setup is completed.
+ */
+public interface FlowDecisionService {
+
+    /**
+     * Returns the forwarding decision of a flow.
+     *
+     * @param key flow key
+     * @return decision, or null if there is no valid decision for the flow
+     */
+    FlowDecision getDecision(FlowKey key);
+
+    /**
+     * Claims the setup of a flow for a packet-in.
+     * <p>
+     * If the flow already has a decision the packet is sent out with it.
+     * If the setup of the flow is in progress the packet is sent out once
+     * it completes, or dropped if it is aborted. Otherwise the caller owns
+     * the setup and must end it with {@link #completeSetup} or
+     * {@link #abortSetup}.
+     *
+     * @param key     flow key
+     * @param context packet processing context
+     * @return true if the caller owns the setup, false if the packet is handled
+     */
+    boolean claimSetup(FlowKey key, PacketContext context);
+
+    /**
+     * Completes the setup of a flow by recording its forwarding decision,
+     * and sends out the packets waiting for it. The decision expires with
+     * the idle timeout of the rules installed for the flow.
+     *
+     * @param key         flow key
+     * @param treatment   treatment to apply on packet-out
+     * @param idleTimeout idle timeout of the installed rules in seconds
+     */
+    void completeSetup(FlowKey key, TrafficTreatment treatment, int idleTimeout);
+
+    /**
+     * Binds the decision of a flow to the rules installed for it; the
+     * decision is removed as soon as one of them is removed from its
+     * device, whatever its expiry.
+     *
+     * @param key   flow key
+     * @param rules flow rules installed for the flow
+     */
+    void bindRules(FlowKey key, Collection<? extends FlowRule> rules);
+
+    /**
+     * Aborts the setup of a flow; packets waiting for it are dropped.
+     *
+     * @param key flow key
+     */
+    void abortSetup(FlowKey key);
+
+    /**
+     * Removes the decision of a flow.
+     *
+     * @param key flow key
+     */
+    void invalidate(FlowKey key);
+
+    /**
+     * Removes the decisions of all the flows handled by a policy.
+     *
+     * @param policyId policy ID
+     */
+    void invalidatePolicy(int policyId);
+
+    /**
+     * Removes all the decisions.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns the number of cached decisions.
+     *
+     * @return number of decisions
+     */
+    long size();
+
+    /**
+     * Returns the number of lookups answered by a valid decision.
+     *
+     * @return hit count
+     */
+    long hitCount();
+
+    /**
+     * Returns the number of lookups without a valid decision.
+     *
+     * @return miss count
+     */
+    long missCount();
+
+    /**
+     * Returns the number of decisions dropped because they had expired.
+     *
+     * @return expired count
+     */
+    long expiredCount();
+
+    /**
+     * Returns the number of packet-ins which joined a flow setup in
+     * progress instead of setting the flow up again.
+     *
+     * @return coalesced count
+     */
+    long coalescedCount();
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.base.MoreObjects;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+import org.onosproject.net.ConnectPoint;
+import org.osdfreactive.policies.Policy;
+
+import java.util.Objects;
+
+/**
+ * Identifies a reactive flow by its IPv4 5-tuple, the connect point the
+ * packet was received from and the policy handling it.
+ */
+public final class FlowKey {
+
+    private final int srcIp;
+    private final int dstIp;
+    private final byte protocol;
+    private final int srcPort;
+    private final int dstPort;
+    private final ConnectPoint ingress;
+    private final int policyId;
+
+    private FlowKey(int srcIp, int dstIp, byte protocol, int srcPort, int dstPort,
+                    ConnectPoint ingress, int policyId) {
+        this.srcIp = srcIp;
+        this.dstIp = dstIp;
+        this.protocol = protocol;
+        this.srcPort = srcPort;
+        this.dstPort = dstPort;
+        this.ingress = ingress;
+        this.policyId = policyId;
+    }
+
+    /**
+     * Creates a flow key from an incoming packet.
+     *
+     * @param ingress connect point the packet was received from
+     * @param ethPkt  parsed Ethernet packet
+     * @param policy  policy handling the packet
+     * @return flow key, or null if the packet is not an IPv4 packet
+     */
+    public static FlowKey of(ConnectPoint ingress, Ethernet ethPkt, Policy policy) {
+        if (ethPkt.getEtherType() != Ethernet.TYPE_IPV4) {
+            return null;
+        }
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        int srcPort = 0;
+        int dstPort = 0;
+        // The payload of a non-first fragment is not parsed.
+        IPacket payload = ipv4Packet.getPayload();
+        if (payload instanceof TCP) {
+            TCP tcpPacket = (TCP) payload;
+            srcPort = tcpPacket.getSourcePort();
+            dstPort = tcpPacket.getDestinationPort();
+        } else if (payload instanceof UDP) {
+            UDP udpPacket = (UDP) payload;
+            srcPort = udpPacket.getSourcePort();
+            dstPort = udpPacket.getDestinationPort();
+        }
+        return new FlowKey(ipv4Packet.getSourceAddress(),
+                ipv4Packet.getDestinationAddress(),
+                ipv4Packet.getProtocol(),
+                srcPort,
+                dstPort,
+                ingress,
+                policy.getPolicyId().getPolicyId());
+    }
+
+    /**
+     * Returns the connect point the flow is received from.
+     *
+     * @return ingress connect point
+     */
+    public ConnectPoint ingress() {
+        return ingress;
+    }
+
+    /**
+     * Returns the ID of the policy handling the flow.
+     *
+     * @return policy ID
+     */
+    public int policyId() {
+        return policyId;
+    }
+
+    /**
+     * Returns a hash of the 5-tuple of the flow, the same for every packet
+     * of the flow whatever its ingress or policy.
+     *
+     * @return 5-tuple hash
+     */
+    public int tupleHash() {
+        int result = srcIp;
+        result = 31 * result + dstIp;
+        result = 31 * result + protocol;
+        result = 31 * result + srcPort;
+        return 31 * result + dstPort;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = srcIp;
+        result = 31 * result + dstIp;
+        result = 31 * result + protocol;
+        result = 31 * result + srcPort;
+        result = 31 * result + dstPort;
+        result = 31 * result + ingress.hashCode();
+        return 31 * result + policyId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof FlowKey)) {
+            return false;
+        }
+        FlowKey that = (FlowKey) obj;
+        return srcIp == that.srcIp
+                && dstIp == that.dstIp
+                && protocol == that.protocol
+                && srcPort == that.srcPort
+                && dstPort == that.dstPort
+                && policyId == that.policyId
+                && Objects.equals(ingress, that.ingress);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("srcIp", Ip4Address.valueOf(srcIp))
+                .add("dstIp", Ip4Address.valueOf(dstIp))
+                .add("protocol", protocol)
+                .add("srcPort", srcPort)
+                .add("dstPort", dstPort)
+                .add("ingress", ingress)
+                .add("policyId", policyId)
+                .toString();
+    }
+}
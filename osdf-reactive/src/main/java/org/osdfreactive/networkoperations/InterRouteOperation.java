@@ -30,10 +30,12 @@ import org.onlab.packet.MacAddress;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.Link;
 import org.onosproject.net.Path;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
@@ -47,17 +49,19 @@ import org.onosproject.net.packet.OutboundPacket;
 import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketPriority;
 import org.onosproject.net.packet.PacketService;
-import org.onosproject.net.topology.TopologyService;
 import org.osdfreactive.configuration.InterRouteConfigurationService;
 import org.osdfreactive.policies.DefaultPolicy;
-import org.osdfreactive.policyparser.PathSelectionInterface;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policyparser.PathCacheInterface;
 import org.osdfreactive.policyparser.PolicyParserInterface;
 import org.osdfreactive.policystorage.PolicyService;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -82,9 +86,7 @@ public class InterRouteOperation
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected PolicyService policyService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected PathSelectionInterface pathSelection;
-    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected TopologyService topologyService;
+    protected PathCacheInterface pathCache;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected HostService hostService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -97,6 +99,10 @@ public class InterRouteOperation
     private PacketService packetService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private CoreService coreService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowDecisionService flowDecisionService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PathInstallService pathInstallService;
     private int flowTimeout = DEFAULT_TIMEOUT;
     private int flowPriority = DEFAULT_PRIORITY;
     private ApplicationId appId;
@@ -174,11 +180,14 @@ public class InterRouteOperation
      * @param pkt     Inbound packet
      * @param ethPkt  Ethernet packet
      * @param context packet context
+     * @param flowKey flow key of the packet
+     * @return future treatment of the first hop, or null if no rule has been installed
      */
-    private void localInterRoute(DefaultPolicy policy,
-                                 InboundPacket pkt,
-                                 Ethernet ethPkt,
-                                 PacketContext context) {
+    private CompletableFuture<TrafficTreatment> localInterRoute(DefaultPolicy policy,
+                                                                InboundPacket pkt,
+                                                                Ethernet ethPkt,
+                                                                PacketContext context,
+                                                                FlowKey flowKey) {
 
         IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
         IpAddress dstIp =
@@ -196,7 +205,7 @@ public class InterRouteOperation
         }
         if (dstMac == null) {
             hostService.startMonitoringIp(dstIp);
-            return;
+            return null;
         }
 
 
@@ -208,6 +217,9 @@ public class InterRouteOperation
 
 
         TrafficTreatment treatment = null;
+        TrafficTreatment firstHopTreatment = null;
+        List<DefaultFlowRule> rules = new ArrayList<>();
+        CompletableFuture<Boolean> installed;
         TrafficSelector.Builder builderSelector;
         Path endPath = null;
 
@@ -215,6 +227,7 @@ public class InterRouteOperation
         if (src.location().deviceId().equals(dst.location().deviceId())) {
             builderSelector = policyParser.interBuildTrafficSelector(pkt, ethPkt, dstMac, policy);
             if (builderSelector != null) {
+                TrafficSelector selector = builderSelector.build();
                 treatment = DefaultTrafficTreatment.
                         builder()
                         .setOutput(dst.location().port())
@@ -223,35 +236,24 @@ public class InterRouteOperation
                 flowRule = (DefaultFlowRule) DefaultFlowRule.builder()
                         .withPriority(policy.getPriority())
                         .makeTemporary(flowTimeout).forDevice(dst.location().deviceId())
-                        .withSelector(builderSelector.build()).withTreatment(treatment)
-                        .fromApp(appId).forTable(TABLE_ID)
+                        .withSelector(selector).withTreatment(treatment)
+                        .forTable(TABLE_ID)
+                        .withCookie(PolicyCookie.of(appId, policy, dst.location().deviceId(),
+                                selector, policy.getPriority(), TABLE_ID))
                         .build();
-                flowRuleService.applyFlowRules(flowRule);
-                policyService.addFlowRule(policy, flowRule);
+                rules.add(flowRule);
+                firstHopTreatment = treatment;
             }
 
-            //forwardPacketToDst(context,dst.location());
-            context.treatmentBuilder().setOutput(dst.location().port());
-            context.send();
+            installed = installPath(policy, rules, flowKey);
+            sendFirstPacket(context, dst.location().port(), installed);
 
         } else {
-            Set<Path> endToEndPaths =
-                    topologyService.getPaths(topologyService.currentTopology(),
-                            src.location().deviceId(),
-                            dst.location().deviceId());
-            switch (policy.getPathSelectionAlgo()) {
-                case ON_DEMAND:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
-                case RANDOM:
-                    endPath = pathSelection.pickRandomPath(endToEndPaths, policy);
-                    break;
-                case BEST_POSSIBLE_PATH:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
-                default:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
+            endPath = pathCache.getPath(src.location().deviceId(),
+                    dst.location().deviceId(), policy,
+                    flowKey == null ? 0 : flowKey.tupleHash());
+            if (endPath == null) {
+                return null;
             }
             pathLinks = endPath.links();
             Link lastLink = pathLinks.get(pathLinks.size() - 1);
@@ -262,6 +264,7 @@ public class InterRouteOperation
                         ethPkt,
                         dstMac,
                         policy);
+                TrafficSelector selector = builderSelector == null ? null : builderSelector.build();
                 if (builderSelector != null && link.equals(firstLink)) {
                     treatment = DefaultTrafficTreatment.
                             builder().setEthDst(dstMac)
@@ -270,12 +273,14 @@ public class InterRouteOperation
                     DefaultFlowRule flowRule;
                     flowRule = (DefaultFlowRule) DefaultFlowRule.builder()
                             .withPriority(priority).makeTemporary(flowTimeout)
-                            .forDevice(link.src().deviceId()).withSelector(builderSelector.build())
+                            .forDevice(link.src().deviceId()).withSelector(selector)
                             .withTreatment(treatment)
-                            .fromApp(appId).forTable(TABLE_ID)
+                            .forTable(TABLE_ID)
+                            .withCookie(PolicyCookie.of(appId, policy, link.src().deviceId(),
+                                    selector, priority, TABLE_ID))
                             .build();
-                    flowRuleService.applyFlowRules(flowRule);
-                    policyService.addFlowRule(policy, flowRule);
+                    rules.add(flowRule);
+                    firstHopTreatment = treatment;
                     if (lastLink.equals(link)) {
                         treatment = DefaultTrafficTreatment.
                                 builder()
@@ -285,13 +290,13 @@ public class InterRouteOperation
                                 .withPriority(priority)
                                 .makeTemporary(flowTimeout)
                                 .forDevice(dst.location().deviceId())
-                                .withSelector(builderSelector.build())
+                                .withSelector(selector)
                                 .withTreatment(treatment)
-                                .fromApp(appId)
+                                .withCookie(PolicyCookie.of(appId, policy, dst.location().deviceId(),
+                                        selector, priority, TABLE_ID))
                                 .forTable(TABLE_ID)
                                 .build();
-                        flowRuleService.applyFlowRules(flowRule);
-                        policyService.addFlowRule(policy, flowRule);
+                        rules.add(flowRule);
                     }
 
                 } else if (builderSelector != null) {
@@ -305,13 +310,14 @@ public class InterRouteOperation
                     flowRule = (DefaultFlowRule) DefaultFlowRule
                             .builder()
                             .withPriority(priority).makeTemporary(flowTimeout)
-                            .forDevice(link.src().deviceId()).withSelector(builderSelector.build())
-                            .withTreatment(treatment).fromApp(appId)
+                            .forDevice(link.src().deviceId()).withSelector(selector)
+                            .withTreatment(treatment)
+                            .withCookie(PolicyCookie.of(appId, policy, link.src().deviceId(),
+                                    selector, priority, TABLE_ID))
                             .forTable(TABLE_ID)
                             .build();
 
-                    flowRuleService.applyFlowRules(flowRule);
-                    policyService.addFlowRule(policy, flowRule);
+                    rules.add(flowRule);
                     if (lastLink.equals(link)) {
                         treatment = DefaultTrafficTreatment
                                 .builder()
@@ -321,22 +327,137 @@ public class InterRouteOperation
                                 .builder()
                                 .withPriority(priority).makeTemporary(flowTimeout)
                                 .forDevice(dst.location().deviceId())
-                                .withSelector(builderSelector.build())
-                                .withTreatment(treatment).fromApp(appId)
+                                .withSelector(selector)
+                                .withTreatment(treatment)
+                                .withCookie(PolicyCookie.of(appId, policy, dst.location().deviceId(),
+                                        selector, priority, TABLE_ID))
                                 .forTable(TABLE_ID)
                                 .build();
-                        flowRuleService.applyFlowRules(flowRule);
-                        policyService.addFlowRule(policy, flowRule);
+                        rules.add(flowRule);
                     }
                 }
             }
-            //forwardPacketToDst(context,firstLink.src());
-            context.treatmentBuilder().setOutput(firstLink.src().port());
-            context.send();
+            installed = installPath(policy, rules, flowKey);
+            sendFirstPacket(context, firstLink.src().port(), installed);
 
         }
+        return decisionOf(firstHopTreatment, installed);
+    }
 
+    /**
+     * Routes an IPv4 packet, letting only the first packet-in of a flow
+     * install its rules while the others are sent out once its decision
+     * is known.
+     *
+     * @param policy  policy
+     * @param pkt     inbound packet
+     * @param ethPkt  Ethernet packet
+     * @param context packet processing context
+     */
+    private void routeFlow(DefaultPolicy policy,
+                           InboundPacket pkt,
+                           Ethernet ethPkt,
+                           PacketContext context) {
+        FlowKey flowKey = FlowKey.of(pkt.receivedFrom(), ethPkt, policy);
+        if (!flowDecisionService.claimSetup(flowKey, context)) {
+            return;
+        }
+
+        CompletableFuture<TrafficTreatment> decision = null;
+        try {
+            decision = localInterRoute(policy, pkt, ethPkt, context, flowKey);
+        } finally {
+            if (decision == null) {
+                flowDecisionService.abortSetup(flowKey);
+            } else {
+                decision.thenAccept(treatment -> {
+                    if (treatment != null) {
+                        flowDecisionService.completeSetup(flowKey, treatment, flowTimeout);
+                    } else {
+                        flowDecisionService.abortSetup(flowKey);
+                    }
+                });
+            }
+        }
+    }
 
+    /**
+     * Submits the flow rules of a path; the decision of the flow is bound
+     * to them once they are installed, and dropped if they can not be.
+     *
+     * @param policy  policy the rules are installed for
+     * @param rules   flow rules of the path
+     * @param flowKey flow key, or null if the flow has no decision
+     * @return future completed with true once the rules are installed
+     */
+    private CompletableFuture<Boolean> installPath(DefaultPolicy policy,
+                                                   List<DefaultFlowRule> rules,
+                                                   FlowKey flowKey) {
+        CompletableFuture<Boolean> installed = pathInstallService.install(policy, rules);
+        installed.thenAccept(success -> {
+            if (flowKey == null) {
+                return;
+            }
+            if (success) {
+                flowDecisionService.bindRules(flowKey, rules);
+            } else {
+                flowDecisionService.invalidate(flowKey);
+            }
+        });
+        return installed;
+    }
+
+    /**
+     * Sends the first packet of a flow out of a port of the device it was
+     * received from. The packet processor has blocked the packet before
+     * routing it off the packet dispatch thread, so the packet is emitted
+     * rather than sent through its context. With
+     * egress-first installation it is held until the rules of the path
+     * are installed.
+     *
+     * @param context   packet processing context
+     * @param port      output port
+     * @param installed future completed once the rules are installed
+     */
+    private void sendFirstPacket(PacketContext context,
+                                 PortNumber port,
+                                 CompletableFuture<Boolean> installed) {
+        DeviceId deviceId = context.inPacket().receivedFrom().deviceId();
+        ByteBuffer data = context.inPacket().unparsed();
+        if (!pathInstallService.isEgressFirst()) {
+            packetService.emit(new DefaultOutboundPacket(deviceId,
+                    DefaultTrafficTreatment.builder().setOutput(port).build(),
+                    data));
+            return;
+        }
+
+        installed.thenAccept(success -> {
+            if (success) {
+                packetService.emit(new DefaultOutboundPacket(deviceId,
+                        DefaultTrafficTreatment.builder().setOutput(port).build(),
+                        data));
+            }
+        });
+    }
+
+    /**
+     * Returns the decision of a flow once it can be used for its packets:
+     * right away, or with egress-first installation once the rules of the
+     * path are installed.
+     *
+     * @param firstHopTreatment treatment of the first hop, or null
+     * @param installed         future completed once the rules are installed
+     * @return future decision, or null if there is no decision
+     */
+    private CompletableFuture<TrafficTreatment> decisionOf(TrafficTreatment firstHopTreatment,
+                                                           CompletableFuture<Boolean> installed) {
+        if (firstHopTreatment == null) {
+            return null;
+        }
+        if (!pathInstallService.isEgressFirst()) {
+            return CompletableFuture.completedFuture(firstHopTreatment);
+        }
+        return installed.thenApply(success -> success ? firstHopTreatment : null);
     }
 
     /**
@@ -375,7 +496,7 @@ public class InterRouteOperation
 
         switch (EthType.EtherType.lookup(ethPkt.getEtherType())) {
             case IPV4:
-                localInterRoute(policy, pkt, ethPkt, context);
+                routeFlow(policy, pkt, ethPkt, context);
                 break;
             default:
                 break;
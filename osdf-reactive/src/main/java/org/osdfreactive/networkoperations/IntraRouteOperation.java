@@ -28,10 +28,12 @@ import org.onlab.packet.Ethernet;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.Link;
 import org.onosproject.net.Path;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.config.NetworkConfigService;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.onosproject.net.flow.DefaultTrafficSelector;
@@ -47,17 +49,19 @@ import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketPriority;
 import org.onosproject.net.packet.PacketService;
 import org.onosproject.net.region.RegionService;
-import org.onosproject.net.topology.TopologyService;
 import org.osdfreactive.configuration.InterRouteConfigurationService;
 import org.osdfreactive.policies.DefaultPolicy;
-import org.osdfreactive.policyparser.PathSelectionInterface;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policyparser.PathCacheInterface;
 import org.osdfreactive.policyparser.PolicyParserInterface;
 import org.osdfreactive.policystorage.PolicyService;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -87,9 +91,7 @@ public class IntraRouteOperation extends
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected PolicyService policyService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected PathSelectionInterface pathSelection;
-    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected TopologyService topologyService;
+    protected PathCacheInterface pathCache;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected HostService hostService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -98,6 +100,10 @@ public class IntraRouteOperation extends
     protected InterRouteConfigurationService config;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected NetworkConfigService configService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowDecisionService flowDecisionService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PathInstallService pathInstallService;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private PolicyParserInterface policyParser;
@@ -176,6 +182,85 @@ public class IntraRouteOperation extends
     }
 
 
+    /**
+     * Submits the flow rules of a path; the decision of the flow is bound
+     * to them once they are installed, and dropped if they can not be.
+     *
+     * @param policy  policy the rules are installed for
+     * @param rules   flow rules of the path
+     * @param flowKey flow key, or null if the flow has no decision
+     * @return future completed with true once the rules are installed
+     */
+    private CompletableFuture<Boolean> installPath(DefaultPolicy policy,
+                                                   List<DefaultFlowRule> rules,
+                                                   FlowKey flowKey) {
+        CompletableFuture<Boolean> installed = pathInstallService.install(policy, rules);
+        installed.thenAccept(success -> {
+            if (flowKey == null) {
+                return;
+            }
+            if (success) {
+                flowDecisionService.bindRules(flowKey, rules);
+            } else {
+                flowDecisionService.invalidate(flowKey);
+            }
+        });
+        return installed;
+    }
+
+    /**
+     * Sends the first packet of a flow out of a port of the device it was
+     * received from. The packet processor has blocked the packet before
+     * routing it off the packet dispatch thread, so the packet is emitted
+     * rather than sent through its context. With
+     * egress-first installation it is held until the rules of the path
+     * are installed.
+     *
+     * @param context   packet processing context
+     * @param port      output port
+     * @param installed future completed once the rules are installed
+     */
+    private void sendFirstPacket(PacketContext context,
+                                 PortNumber port,
+                                 CompletableFuture<Boolean> installed) {
+        DeviceId deviceId = context.inPacket().receivedFrom().deviceId();
+        ByteBuffer data = context.inPacket().unparsed();
+        if (!pathInstallService.isEgressFirst()) {
+            packetService.emit(new DefaultOutboundPacket(deviceId,
+                    DefaultTrafficTreatment.builder().setOutput(port).build(),
+                    data));
+            return;
+        }
+
+        installed.thenAccept(success -> {
+            if (success) {
+                packetService.emit(new DefaultOutboundPacket(deviceId,
+                        DefaultTrafficTreatment.builder().setOutput(port).build(),
+                        data));
+            }
+        });
+    }
+
+    /**
+     * Returns the decision of a flow once it can be used for its packets:
+     * right away, or with egress-first installation once the rules of the
+     * path are installed.
+     *
+     * @param firstHopTreatment treatment of the first hop, or null
+     * @param installed         future completed once the rules are installed
+     * @return future decision, or null if there is no decision
+     */
+    private CompletableFuture<TrafficTreatment> decisionOf(TrafficTreatment firstHopTreatment,
+                                                           CompletableFuture<Boolean> installed) {
+        if (firstHopTreatment == null) {
+            return null;
+        }
+        if (!pathInstallService.isEgressFirst()) {
+            return CompletableFuture.completedFuture(firstHopTreatment);
+        }
+        return installed.thenApply(success -> success ? firstHopTreatment : null);
+    }
+
     public void intraRouteProcess(DefaultPolicy policy, PacketContext context) {
 
         InboundPacket pkt = context.inPacket();
@@ -189,18 +274,65 @@ public class IntraRouteOperation extends
             return;
         }
 
+        FlowKey flowKey = FlowKey.of(pkt.receivedFrom(), ethPkt, policy);
+        if (flowKey == null) {
+            routeFlow(policy, pkt, ethPkt, context, null);
+            return;
+        }
+        // Only the first packet-in of a flow routes it; the others are
+        // sent out once its decision is known.
+        if (!flowDecisionService.claimSetup(flowKey, context)) {
+            return;
+        }
+
+        CompletableFuture<TrafficTreatment> decision = null;
+        try {
+            decision = routeFlow(policy, pkt, ethPkt, context, flowKey);
+        } finally {
+            if (decision == null) {
+                flowDecisionService.abortSetup(flowKey);
+            } else {
+                decision.thenAccept(treatment -> {
+                    if (treatment != null) {
+                        flowDecisionService.completeSetup(flowKey, treatment, flowTimeout);
+                    } else {
+                        flowDecisionService.abortSetup(flowKey);
+                    }
+                });
+            }
+        }
+    }
 
+    /**
+     * Installs the flow rules of a packet along a path selected for a policy
+     * and sends the packet out.
+     *
+     * @param policy  policy
+     * @param pkt     inbound packet
+     * @param ethPkt  Ethernet packet
+     * @param context packet processing context
+     * @param flowKey flow key, or null if the flow has no decision
+     * @return future treatment of the first hop, or null if no rule has been installed
+     */
+    private CompletableFuture<TrafficTreatment> routeFlow(DefaultPolicy policy,
+                                                          InboundPacket pkt,
+                                                          Ethernet ethPkt,
+                                                          PacketContext context,
+                                                          FlowKey flowKey) {
         HostId dstId = HostId.hostId(ethPkt.getDestinationMAC());
         HostId srcId = HostId.hostId(ethPkt.getSourceMAC());
         Host dst = hostService.getHost(dstId);
         Host src = hostService.getHost(srcId);
         List<Link> pathLinks = null;
         if (src == null || dst == null) {
-            return;
+            return null;
         }
 
 
         TrafficTreatment treatment;
+        TrafficTreatment firstHopTreatment = null;
+        List<DefaultFlowRule> rules = new ArrayList<>();
+        CompletableFuture<Boolean> installed;
         TrafficSelector.Builder builderSelector;
         Path endPath;
 
@@ -210,6 +342,7 @@ public class IntraRouteOperation extends
                     null,
                     policy);
             if (builderSelector != null) {
+                TrafficSelector selector = builderSelector.build();
                 treatment = DefaultTrafficTreatment.
                         builder()
                         .setOutput(dst.location().port())
@@ -219,37 +352,24 @@ public class IntraRouteOperation extends
                         .withPriority(policy.getPriority())
                         .withIdleTimeout(flowTimeout)
                         .forDevice(dst.location().deviceId())
-                        .withSelector(builderSelector.build())
+                        .withSelector(selector)
                         .withTreatment(treatment)
-                        .fromApp(appId)
+                        .withCookie(PolicyCookie.of(appId, policy, dst.location().deviceId(),
+                                selector, policy.getPriority(), TABLE_ID))
                         .forTable(TABLE_ID)
                         .build();
-                flowRuleService.applyFlowRules(flowRule);
-                policyService.addFlowRule(policy, flowRule);
-
+                rules.add(flowRule);
+                firstHopTreatment = treatment;
             }
 
-            context.treatmentBuilder().setOutput(dst.location().port());
-            context.send();
-            //forwardPacketToDst(context,dst.location());
+            installed = installPath(policy, rules, flowKey);
+            sendFirstPacket(context, dst.location().port(), installed);
         } else {
-            Set<Path> endToEndPaths =
-                    topologyService.getPaths(topologyService.currentTopology(),
-                            src.location().deviceId(),
-                            dst.location().deviceId());
-            switch (policy.getPathSelectionAlgo()) {
-                case ON_DEMAND:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
-                case RANDOM:
-                    endPath = pathSelection.pickRandomPath(endToEndPaths, policy);
-                    break;
-                case BEST_POSSIBLE_PATH:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
-                default:
-                    endPath = pathSelection.getEndtoEndPath(endToEndPaths, policy);
-                    break;
+            endPath = pathCache.getPath(src.location().deviceId(),
+                    dst.location().deviceId(), policy,
+                    flowKey == null ? 0 : flowKey.tupleHash());
+            if (endPath == null) {
+                return null;
             }
             pathLinks = endPath.links();
             int priority = policy.getPriority();
@@ -261,6 +381,7 @@ public class IntraRouteOperation extends
                         link,
                         policy);
                 if (builderSelector != null) {
+                    TrafficSelector selector = builderSelector.build();
                     treatment = DefaultTrafficTreatment.
                             builder()
                             .setOutput(link.src().port())
@@ -270,14 +391,17 @@ public class IntraRouteOperation extends
                             .withPriority(priority)
                             .withIdleTimeout(flowTimeout)
                             .forDevice(link.src().deviceId())
-                            .withSelector(builderSelector.build())
+                            .withSelector(selector)
                             .withTreatment(treatment)
-                            .fromApp(appId)
+                            .withCookie(PolicyCookie.of(appId, policy, link.src().deviceId(),
+                                    selector, priority, TABLE_ID))
                             .forTable(TABLE_ID)
                             .build();
 
-                    flowRuleService.applyFlowRules(flowRule);
-                    policyService.addFlowRule(policy, flowRule);
+                    rules.add(flowRule);
+                    if (firstLink.equals(link)) {
+                        firstHopTreatment = treatment;
+                    }
                     if (lastLink.equals(link)) {
                         treatment = DefaultTrafficTreatment.
                                 builder()
@@ -287,28 +411,23 @@ public class IntraRouteOperation extends
                                 .withPriority(priority)
                                 .withIdleTimeout(flowTimeout)
                                 .forDevice(dst.location().deviceId())
-                                .withSelector(builderSelector.build())
+                                .withSelector(selector)
                                 .withTreatment(treatment)
-                                .fromApp(appId)
+                                .withCookie(PolicyCookie.of(appId, policy, dst.location().deviceId(),
+                                        selector, priority, TABLE_ID))
                                 .forTable(TABLE_ID)
                                 .build();
 
-                        flowRuleService.applyFlowRules(flowRule);
-                        policyService.addFlowRule(policy, flowRule);
+                        rules.add(flowRule);
 
                     }
                 }
             }
 
-
-            //forwardPacketToDst(context,firstLink.src());
-
-            context.treatmentBuilder().setOutput(firstLink.src().port());
-            context.send();
-            log.info("sending packet: {}", context);
-
+            installed = installPath(policy, rules, flowKey);
+            sendFirstPacket(context, firstLink.src().port(), installed);
         }
-
+        return decisionOf(firstHopTreatment, installed);
     }
 
 
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.MacAddress;
+import org.onlab.util.Tools;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketPriority;
+import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketService;
+import org.osdfreactive.configuration.InterRouteConfigurationService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Token bucket packet-in governor.
+ * <p>
+ * Its packet processor runs ahead of the routing processors and blocks
+ * packet-ins exceeding the rate of their device or of their source MAC
+ * address. A source exceeding its rate also gets a temporary drop rule on
+ * the port it is sending from, below the policy rules so that the flows
+ * already routed for it keep being forwarded.
+ * <p>
+ * ARP and the traffic of the virtual gateway and of the configured routers
+ * are never limited: a router carries the traffic of many hosts, and
+ * blocking it or the address resolution would cut off whole regions.
+ */
+@Component(immediate = true)
+@Service
+public class PacketInGovernorManager implements PacketInGovernorService {
+
+    private static final String APP_NAME = "org.onosproject.PacketInGovernor";
+    private static final int DEFAULT_DEVICE_RATE = 2000;
+    private static final int DEFAULT_DEVICE_BURST = 4000;
+    private static final int DEFAULT_HOST_RATE = 200;
+    private static final int DEFAULT_HOST_BURST = 400;
+    private static final int DEFAULT_DROP_TIMEOUT = 10;
+    private static final int TABLE_ID = 0;
+    // Above the packet request rules of the routing applications.
+    private static final int DROP_RULE_PRIORITY = PacketPriority.REACTIVE.priorityValue() + 1;
+    private static final long IDLE_BUCKET_MINUTES = 5;
+    private static final int MAX_DEVICE_BUCKETS = 10000;
+    // Bounds the buckets created by a host spoofing source MAC addresses.
+    private static final int MAX_HOST_BUCKETS = 100000;
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PacketService packetService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected InterRouteConfigurationService config;
+
+    @Property(name = "governorEnabled", boolValue = false,
+            label = "Enable packet-in rate limiting; default is false")
+    private volatile boolean governorEnabled = false;
+
+    @Property(name = "devicePacketInRate", intValue = DEFAULT_DEVICE_RATE,
+            label = "Configure the packet-in rate allowed per device in packets per second; " +
+                    "default is 2000")
+    private int devicePacketInRate = DEFAULT_DEVICE_RATE;
+
+    @Property(name = "devicePacketInBurst", intValue = DEFAULT_DEVICE_BURST,
+            label = "Configure the packet-in burst allowed per device; default is 4000")
+    private int devicePacketInBurst = DEFAULT_DEVICE_BURST;
+
+    @Property(name = "hostPacketInRate", intValue = DEFAULT_HOST_RATE,
+            label = "Configure the packet-in rate allowed per source MAC address in packets " +
+                    "per second; default is 200")
+    private int hostPacketInRate = DEFAULT_HOST_RATE;
+
+    @Property(name = "hostPacketInBurst", intValue = DEFAULT_HOST_BURST,
+            label = "Configure the packet-in burst allowed per source MAC address; " +
+                    "default is 400")
+    private int hostPacketInBurst = DEFAULT_HOST_BURST;
+
+    @Property(name = "dropRuleTimeout", intValue = DEFAULT_DROP_TIMEOUT,
+            label = "Configure the hard timeout of drop rules installed for over-limit " +
+                    "hosts in seconds, 0 disables them; default is 10 sec")
+    private int dropRuleTimeout = DEFAULT_DROP_TIMEOUT;
+
+    @Property(name = "routerMacAddresses", value = "",
+            label = "Configure the comma separated MAC addresses of the routers " +
+                    "exempted from packet-in rate limiting; default is none")
+    private volatile Set<MacAddress> routerMacAddresses = ImmutableSet.of();
+
+    private final GovernorPacketProcessor processor = new GovernorPacketProcessor();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong deviceShed = new AtomicLong();
+    private final AtomicLong hostShed = new AtomicLong();
+    private final AtomicLong dropRules = new AtomicLong();
+    private final ConcurrentMap<DeviceId, AtomicLong> shedByDevice = Maps.newConcurrentMap();
+    private final Cache<DeviceId, TokenBucket> deviceBuckets = newBucketCache(MAX_DEVICE_BUCKETS);
+    private final Cache<MacAddress, TokenBucket> hostBuckets = newBucketCache(MAX_HOST_BUCKETS);
+
+    private ApplicationId appId;
+
+    @Activate
+    public void activate(ComponentContext context) {
+        appId = coreService.registerApplication(APP_NAME);
+        readComponentConfiguration(context);
+        packetService.addProcessor(processor, PacketProcessor.director(1));
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        packetService.removeProcessor(processor);
+        flowRuleService.removeFlowRulesById(appId);
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean governorEnabledConfigured = Tools.isPropertyEnabled(properties, "governorEnabled");
+        if (governorEnabledConfigured == null) {
+            log.info("Packet-in governor is not configured, " +
+                    "using current value of {}", governorEnabled);
+        } else {
+            governorEnabled = governorEnabledConfigured;
+            log.info("Configured. Packet-in governor is {}",
+                    governorEnabled ? "enabled" : "disabled");
+        }
+
+        devicePacketInRate = Tools.getIntegerProperty(properties, "devicePacketInRate",
+                DEFAULT_DEVICE_RATE);
+        devicePacketInBurst = Tools.getIntegerProperty(properties, "devicePacketInBurst",
+                DEFAULT_DEVICE_BURST);
+        hostPacketInRate = Tools.getIntegerProperty(properties, "hostPacketInRate",
+                DEFAULT_HOST_RATE);
+        hostPacketInBurst = Tools.getIntegerProperty(properties, "hostPacketInBurst",
+                DEFAULT_HOST_BURST);
+        dropRuleTimeout = Tools.getIntegerProperty(properties, "dropRuleTimeout",
+                DEFAULT_DROP_TIMEOUT);
+        log.info("Configured. Device rate {}/s burst {}, host rate {}/s burst {}, " +
+                        "drop rule timeout {} sec",
+                devicePacketInRate, devicePacketInBurst,
+                hostPacketInRate, hostPacketInBurst, dropRuleTimeout);
+
+        String routerMacs = Tools.get(properties, "routerMacAddresses");
+        if (routerMacs != null) {
+            routerMacAddresses = parseMacAddresses(routerMacs);
+            log.info("Configured. Router MAC addresses are {}", routerMacAddresses);
+        }
+
+        // Buckets are created with the rates in force.
+        deviceBuckets.invalidateAll();
+        hostBuckets.invalidateAll();
+    }
+
+    /**
+     * Parses a comma separated list of MAC addresses, skipping invalid ones.
+     *
+     * @param value comma separated MAC addresses
+     * @return MAC addresses
+     */
+    private Set<MacAddress> parseMacAddresses(String value) {
+        ImmutableSet.Builder<MacAddress> macs = ImmutableSet.builder();
+        for (String mac : value.split(",")) {
+            if (mac.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                macs.add(MacAddress.valueOf(mac.trim()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid router MAC address {}", mac.trim());
+            }
+        }
+        return macs.build();
+    }
+
+    private static <K> Cache<K, TokenBucket> newBucketCache(int maximumSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(IDLE_BUCKET_MINUTES, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    public long passedCount() {
+        return passed.get();
+    }
+
+    @Override
+    public long deviceShedCount() {
+        return deviceShed.get();
+    }
+
+    @Override
+    public long hostShedCount() {
+        return hostShed.get();
+    }
+
+    @Override
+    public long dropRuleCount() {
+        return dropRules.get();
+    }
+
+    @Override
+    public Map<DeviceId, Long> shedCountsByDevice() {
+        ImmutableMap.Builder<DeviceId, Long> counts = ImmutableMap.builder();
+        shedByDevice.forEach((deviceId, count) -> counts.put(deviceId, count.get()));
+        return counts.build();
+    }
+
+    /**
+     * Evaluates whether a packet-in is within the rates of its device and
+     * source, shedding it otherwise.
+     *
+     * @param ingress connect point the packet was received from
+     * @param srcMac  source MAC address of the packet
+     * @return true if the packet-in is allowed, otherwise false
+     */
+    private boolean admit(ConnectPoint ingress, MacAddress srcMac) {
+        long now = System.nanoTime();
+
+        TokenBucket hostBucket = hostBuckets.asMap().computeIfAbsent(srcMac,
+                mac -> new TokenBucket(hostPacketInRate, hostPacketInBurst, now));
+        if (!hostBucket.tryAcquire(now)) {
+            hostShed.incrementAndGet();
+            shed(ingress.deviceId());
+            if (dropRuleTimeout > 0
+                    && hostBucket.tryBlock(now, now + TimeUnit.SECONDS.toNanos(dropRuleTimeout))) {
+                installDropRule(ingress, srcMac);
+            }
+            return false;
+        }
+
+        TokenBucket deviceBucket = deviceBuckets.asMap().computeIfAbsent(ingress.deviceId(),
+                deviceId -> new TokenBucket(devicePacketInRate, devicePacketInBurst, now));
+        if (!deviceBucket.tryAcquire(now)) {
+            deviceShed.incrementAndGet();
+            shed(ingress.deviceId());
+            return false;
+        }
+
+        passed.incrementAndGet();
+        return true;
+    }
+
+    private void shed(DeviceId deviceId) {
+        shedByDevice.computeIfAbsent(deviceId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Installs a temporary rule dropping the traffic of a source on the
+     * port it is sending from.
+     *
+     * @param ingress connect point the source is sending from
+     * @param srcMac  source MAC address
+     */
+    private void installDropRule(ConnectPoint ingress, MacAddress srcMac) {
+        FlowRule dropRule = DefaultFlowRule.builder()
+                .forDevice(ingress.deviceId())
+                .withSelector(DefaultTrafficSelector.builder()
+                        .matchInPort(ingress.port())
+                        .matchEthSrc(srcMac)
+                        .build())
+                .withTreatment(DefaultTrafficTreatment.builder().drop().build())
+                .withPriority(DROP_RULE_PRIORITY)
+                .makeTemporary(dropRuleTimeout)
+                .fromApp(appId)
+                .forTable(TABLE_ID)
+                .build();
+        flowRuleService.applyFlowRules(dropRule);
+        dropRules.incrementAndGet();
+        log.warn("Source {} on {} exceeded its packet-in rate, dropping its traffic for {} sec",
+                srcMac, ingress, dropRuleTimeout);
+    }
+
+    /**
+     * Evaluates whether a packet is exempted from rate limiting.
+     *
+     * @param ethPkt Ethernet packet
+     * @return true for ARP and packets from the virtual gateway or a router, otherwise false
+     */
+    private boolean isExempt(Ethernet ethPkt) {
+        if (ethPkt.getEtherType() == Ethernet.TYPE_ARP) {
+            return true;
+        }
+        MacAddress srcMac = ethPkt.getSourceMAC();
+        return srcMac.equals(config.getVirtualGatewayMacAddress())
+                || routerMacAddresses.contains(srcMac);
+    }
+
+    /**
+     * Packet processor shedding over-limit packet-ins before they are
+     * processed by policy routing.
+     */
+    private class GovernorPacketProcessor implements PacketProcessor {
+
+        @Override
+        public void process(PacketContext context) {
+            if (!governorEnabled || context.isHandled()) {
+                return;
+            }
+            Ethernet ethPkt = context.inPacket().parsed();
+            if (ethPkt == null) {
+                return;
+            }
+            short type = ethPkt.getEtherType();
+            if (type == Ethernet.TYPE_LLDP || type == Ethernet.TYPE_BSN || isExempt(ethPkt)) {
+                return;
+            }
+            if (!admit(context.inPacket().receivedFrom(), ethPkt.getSourceMAC())) {
+                context.block();
+            }
+        }
+    }
+}
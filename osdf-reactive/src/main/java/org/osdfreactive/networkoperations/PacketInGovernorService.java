@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import org.onosproject.net.DeviceId;
+
+import java.util.Map;
+
+/**
+ * Packet-in governor which sheds packet-ins exceeding the rate allowed to
+ * a device or to a source host, before they reach policy routing.
+ */
+public interface PacketInGovernorService {
+
+    /**
+     * Returns the number of packet-ins let through.
+     *
+     * @return passed count
+     */
+    long passedCount();
+
+    /**
+     * Returns the number of packet-ins shed because their device exceeded
+     * its rate.
+     *
+     * @return device shed count
+     */
+    long deviceShedCount();
+
+    /**
+     * Returns the number of packet-ins shed because their source host
+     * exceeded its rate.
+     *
+     * @return host shed count
+     */
+    long hostShedCount();
+
+    /**
+     * Returns the number of drop rules installed for over-limit hosts.
+     *
+     * @return drop rule count
+     */
+    long dropRuleCount();
+
+    /**
+     * Returns the number of packet-ins shed per device.
+     *
+     * @return map of device ID to shed count
+     */
+    Map<DeviceId, Long> shedCountsByDevice();
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.Dictionary;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Packet-in pipeline running routing tasks on single threaded workers,
+ * each one with its own bounded queue.
+ */
+@Component(immediate = true)
+@Service
+public class PacketPipelineManager implements PacketPipelineService {
+
+    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private final Logger log = getLogger(getClass());
+
+    @Property(name = "pipelineEnabled", boolValue = false,
+            label = "Enable routing packet-ins on worker threads instead of the packet " +
+                    "dispatch thread; default is false")
+    private volatile boolean pipelineEnabled = false;
+
+    @Property(name = "pipelineWorkers", intValue = 0,
+            label = "Configure the number of routing workers, 0 uses one worker per core; " +
+                    "default is 0")
+    private int pipelineWorkers = DEFAULT_WORKERS;
+
+    @Property(name = "pipelineQueueSize", intValue = DEFAULT_QUEUE_SIZE,
+            label = "Configure the number of packet-ins each routing worker can queue; " +
+                    "default is 1024")
+    private int pipelineQueueSize = DEFAULT_QUEUE_SIZE;
+
+    private final Map<PipelineStage, StageMetrics> metrics = new EnumMap<>(PipelineStage.class);
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile ThreadPoolExecutor[] workers = new ThreadPoolExecutor[0];
+
+    @Activate
+    public void activate(ComponentContext context) {
+        for (PipelineStage stage : PipelineStage.values()) {
+            metrics.put(stage, new StageMetrics());
+        }
+        readComponentConfiguration(context);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        shutdown(workers);
+        workers = new ThreadPoolExecutor[0];
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean pipelineEnabledConfigured = Tools.isPropertyEnabled(properties, "pipelineEnabled");
+        if (pipelineEnabledConfigured == null) {
+            log.info("Packet-in pipeline is not configured, " +
+                    "using current value of {}", pipelineEnabled);
+        } else {
+            pipelineEnabled = pipelineEnabledConfigured;
+            log.info("Configured. Packet-in pipeline is {}",
+                    pipelineEnabled ? "enabled" : "disabled");
+        }
+
+        int newWorkers = Tools.getIntegerProperty(properties, "pipelineWorkers", 0);
+        if (newWorkers <= 0) {
+            newWorkers = DEFAULT_WORKERS;
+        }
+        int newQueueSize = Tools.getIntegerProperty(properties, "pipelineQueueSize",
+                DEFAULT_QUEUE_SIZE);
+        if (newWorkers != workers.length || newQueueSize != pipelineQueueSize) {
+            pipelineWorkers = newWorkers;
+            pipelineQueueSize = newQueueSize;
+            ThreadPoolExecutor[] previous = workers;
+            workers = createWorkers(pipelineWorkers, pipelineQueueSize);
+            shutdown(previous);
+        }
+        log.info("Configured. Packet-in pipeline has {} workers with {} queued packet-ins each",
+                pipelineWorkers, pipelineQueueSize);
+    }
+
+    private ThreadPoolExecutor[] createWorkers(int count, int queueSize) {
+        ThreadPoolExecutor[] executors = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    groupedThreads("onos/osdf-reactive", "pipeline-" + i + "-%d", log));
+        }
+        return executors;
+    }
+
+    private static void shutdown(ThreadPoolExecutor[] executors) {
+        // Queued packet-ins of the previous workers are still routed.
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean submit(int flowHash, Runnable task) {
+        ThreadPoolExecutor[] executors = workers;
+        if (!pipelineEnabled || executors.length == 0) {
+            runTask(task);
+            return true;
+        }
+
+        ThreadPoolExecutor executor = executors[(flowHash & Integer.MAX_VALUE) % executors.length];
+        long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                recordLatency(PipelineStage.QUEUE, System.nanoTime() - queued);
+                runTask(task);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    private void runTask(Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Failed to route packet-in", e);
+        } finally {
+            recordLatency(PipelineStage.ROUTE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void recordLatency(PipelineStage stage, long nanos) {
+        StageMetrics stageMetrics = metrics.get(stage);
+        if (stageMetrics != null) {
+            stageMetrics.record(nanos);
+        }
+    }
+
+    @Override
+    public Map<PipelineStage, StageStatistics> getStageStatistics() {
+        ImmutableMap.Builder<PipelineStage, StageStatistics> statistics = ImmutableMap.builder();
+        metrics.forEach((stage, stageMetrics) -> statistics.put(stage, stageMetrics.snapshot()));
+        return statistics.build();
+    }
+
+    @Override
+    public List<Integer> getQueueDepths() {
+        ImmutableList.Builder<Integer> depths = ImmutableList.builder();
+        for (ThreadPoolExecutor executor : workers) {
+            depths.add(executor.getQueue().size());
+        }
+        return depths.build();
+    }
+
+    @Override
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Latency accumulators of a pipeline stage.
+     */
+    private static final class StageMetrics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private StageStatistics snapshot() {
+            return new StageStatistics(count.sum(), totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Staged packet-in pipeline. Classification runs inline on the packet
+ * dispatch thread, while routing runs on bounded worker queues sharded
+ * by flow hash, so that packets of a flow are routed in order.
+ */
+public interface PacketPipelineService {
+
+    /**
+     * Submits the routing of a packet-in to the worker of its flow.
+     *
+     * @param flowHash hash of the flow the packet belongs to
+     * @param task     routing task
+     * @return true if the task has been queued, false if the queue is full
+     */
+    boolean submit(int flowHash, Runnable task);
+
+    /**
+     * Records the latency of a stage execution.
+     *
+     * @param stage pipeline stage
+     * @param nanos latency in nanoseconds
+     */
+    void recordLatency(PipelineStage stage, long nanos);
+
+    /**
+     * Returns the latency statistics of every stage.
+     *
+     * @return map of stage to statistics
+     */
+    Map<PipelineStage, StageStatistics> getStageStatistics();
+
+    /**
+     * Returns the number of tasks waiting in each worker queue.
+     *
+     * @return queue depth per worker
+     */
+    List<Integer> getQueueDepths();
+
+    /**
+     * Returns the number of packet-ins rejected because their worker queue
+     * was full.
+     *
+     * @return rejected count
+     */
+    long rejectedCount();
+}
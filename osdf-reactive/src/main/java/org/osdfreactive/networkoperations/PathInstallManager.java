@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.osdfreactive.policies.Policy;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policystorage.PolicyService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.Dictionary;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Path installer submitting the flow rules of a path as one asynchronous
+ * batch of flow rule operations.
+ * <p>
+ * It also accounts for the policy rules present in the table of each
+ * device and of each policy, from the flow rule events of the routing
+ * applications; the application and the policy of a rule are given by its
+ * cookie.
+ */
+@Component(immediate = true)
+@Service
+public class PathInstallManager implements PathInstallService {
+
+    private static final String INTRA_APP_NAME = "org.onosproject.PolicyBasedRouting";
+    private static final String INTER_APP_NAME = "org.onosproject.InterRouting";
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PacketPipelineService pipelineService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+
+    @Property(name = "egressFirst", boolValue = false,
+            label = "Enable installing path rules from the egress to the ingress " +
+                    "device, releasing the first packet once they are installed; " +
+                    "default is false")
+    private volatile boolean egressFirst = false;
+
+    private final FlowRuleListener flowRuleListener = new InternalFlowRuleListener();
+    private final ConcurrentMap<DeviceId, AtomicLong> rulesByDevice = Maps.newConcurrentMap();
+    private final ConcurrentMap<Integer, AtomicLong> rulesByPolicy = Maps.newConcurrentMap();
+    private Set<ApplicationId> appIds = ImmutableSet.of();
+
+    @Activate
+    public void activate(ComponentContext context) {
+        appIds = ImmutableSet.of(coreService.registerApplication(INTRA_APP_NAME),
+                coreService.registerApplication(INTER_APP_NAME));
+        readComponentConfiguration(context);
+        flowRuleService.addListener(flowRuleListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        flowRuleService.removeListener(flowRuleListener);
+        rulesByDevice.clear();
+        rulesByPolicy.clear();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean egressFirstEnabled = Tools.isPropertyEnabled(properties, "egressFirst");
+        if (egressFirstEnabled == null) {
+            log.info("Egress-first installation is not configured, " +
+                    "using current value of {}", egressFirst);
+        } else {
+            egressFirst = egressFirstEnabled;
+            log.info("Configured. Egress-first installation is {}",
+                    egressFirst ? "enabled" : "disabled");
+        }
+    }
+
+    @Override
+    public boolean isEgressFirst() {
+        return egressFirst;
+    }
+
+    @Override
+    public Map<DeviceId, Long> ruleCountsByDevice() {
+        ImmutableMap.Builder<DeviceId, Long> counts = ImmutableMap.builder();
+        rulesByDevice.forEach((deviceId, count) -> counts.put(deviceId, count.get()));
+        return counts.build();
+    }
+
+    @Override
+    public Map<Integer, Long> ruleCountsByPolicy() {
+        ImmutableMap.Builder<Integer, Long> counts = ImmutableMap.builder();
+        rulesByPolicy.forEach((policyId, count) -> counts.put(policyId, count.get()));
+        return counts.build();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> install(Policy policy, List<DefaultFlowRule> rules) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (rules.isEmpty()) {
+            result.complete(true);
+            return result;
+        }
+
+        long submitted = System.nanoTime();
+        FlowRuleOperations.Builder operations = FlowRuleOperations.builder();
+        if (egressFirst) {
+            // One stage per rule, a stage is only applied once the previous
+            // one has completed.
+            for (int i = rules.size() - 1; i >= 0; i--) {
+                operations.add(rules.get(i));
+                if (i > 0) {
+                    operations.newStage();
+                }
+            }
+        } else {
+            rules.forEach(operations::add);
+        }
+        flowRuleService.apply(operations.build(new FlowRuleOperationsContext() {
+            @Override
+            public void onSuccess(FlowRuleOperations ops) {
+                pipelineService.recordLatency(PipelineStage.INSTALL, System.nanoTime() - submitted);
+                recordRules(policy, rules);
+                result.complete(true);
+            }
+
+            @Override
+            public void onError(FlowRuleOperations ops) {
+                pipelineService.recordLatency(PipelineStage.INSTALL, System.nanoTime() - submitted);
+                log.warn("Failed to install {} flow rules for policy {}",
+                        rules.size(), policy.getPolicyId().getPolicyId());
+                // Part of the batch may have been applied, keep track of
+                // the rules so that they are removed with the policy.
+                recordRules(policy, rules);
+                result.complete(false);
+            }
+        }));
+        return result;
+    }
+
+    private void recordRules(Policy policy, List<DefaultFlowRule> rules) {
+        for (DefaultFlowRule rule : rules) {
+            policyService.addFlowRule(policy, rule);
+        }
+    }
+
+    /**
+     * Evaluates whether a rule has been installed by one of the routing
+     * applications for a policy.
+     *
+     * @param rule a flow rule
+     * @return true if the cookie of the rule has been issued by a routing application
+     */
+    private boolean isPolicyRule(FlowRule rule) {
+        for (ApplicationId appId : appIds) {
+            if (PolicyCookie.isIssuedBy(rule.id().value(), appId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the rules of the routing applications added to and removed
+     * from the device tables.
+     */
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            if (!isPolicyRule(event.subject())) {
+                return;
+            }
+            DeviceId deviceId = event.subject().deviceId();
+            int policyId = PolicyCookie.policyIdOf(event.subject().id().value());
+            switch (event.type()) {
+                case RULE_ADDED:
+                    increment(rulesByDevice, deviceId);
+                    increment(rulesByPolicy, policyId);
+                    break;
+                case RULE_REMOVED:
+                    decrement(rulesByDevice, deviceId);
+                    decrement(rulesByPolicy, policyId);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private <K> void increment(ConcurrentMap<K, AtomicLong> counts, K key) {
+            counts.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        private <K> void decrement(ConcurrentMap<K, AtomicLong> counts, K key) {
+            AtomicLong count = counts.get(key);
+            if (count != null) {
+                count.updateAndGet(value -> Math.max(0, value - 1));
+            }
+        }
+    }
+}
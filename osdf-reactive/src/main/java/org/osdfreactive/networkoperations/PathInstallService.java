@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.osdfreactive.policies.Policy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Installs the flow rules of a path in a single batch.
+ * <p>
+ * Rules are given in path order, from the ingress to the egress device.
+ * In egress-first mode they are installed in reverse order, each hop
+ * waiting for the downstream ones, so that packets never reach a device
+ * which has no rule yet.
+ */
+public interface PathInstallService {
+
+    /**
+     * Submits the flow rules of a path for a policy as one batch of flow
+     * rule operations. On completion the outcome is recorded against the
+     * policy in the policy service.
+     *
+     * @param policy policy the rules are installed for
+     * @param rules  flow rules of the path
+     * @return future completed with true if the batch has been installed,
+     * false if it has failed
+     */
+    CompletableFuture<Boolean> install(Policy policy, List<DefaultFlowRule> rules);
+
+    /**
+     * Evaluates whether rules are installed from the egress to the ingress
+     * device; in that case the first packet of a flow must only be
+     * released once the installation is acknowledged.
+     *
+     * @return true if egress-first installation is enabled, otherwise false
+     */
+    boolean isEgressFirst();
+
+    /**
+     * Returns the number of policy rules in the flow table of each device.
+     *
+     * @return map of device ID to rule count
+     */
+    Map<DeviceId, Long> ruleCountsByDevice();
+
+    /**
+     * Returns the number of rules of each policy in the flow tables, as
+     * attributed by the cookie of the rules.
+     *
+     * @return map of policy ID to rule count
+     */
+    Map<Integer, Long> ruleCountsByPolicy();
+}
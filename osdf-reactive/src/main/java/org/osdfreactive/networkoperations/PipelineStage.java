@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+/**
+ * Stages of the packet-in pipeline.
+ */
+public enum PipelineStage {
+    /**
+     * Parsing, region resolution and policy lookup, run inline on the
+     * packet dispatch thread.
+     */
+    CLASSIFY,
+
+    /**
+     * Time spent by a packet-in waiting in a worker queue.
+     */
+    QUEUE,
+
+    /**
+     * Host lookup, path selection and flow rule generation, run on a
+     * worker.
+     */
+    ROUTE,
+
+    /**
+     * Flow rule installation, from submission to acknowledgement.
+     */
+    INSTALL
+}
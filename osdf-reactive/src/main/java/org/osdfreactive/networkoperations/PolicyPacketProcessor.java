@@ -0,0 +1,286 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.ARP;
+import org.onlab.packet.EthType;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.onosproject.net.host.HostService;
+import org.onosproject.net.packet.DefaultOutboundPacket;
+import org.onosproject.net.packet.InboundPacket;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketPriority;
+import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketService;
+import org.osdfreactive.configuration.InterRouteConfigurationService;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policyparser.PolicyClassifierInterface;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Packet processor for intra-domain and inter-domain abstract operations.
+ * <p>
+ * A packet-in is parsed and its regions are resolved once; the packet is
+ * then classified for each abstract operation, and the highest priority
+ * policies it belongs to are routed together by the packet-in pipeline.
+ */
+@Component(immediate = true)
+@Service
+public class PolicyPacketProcessor extends AbstractOperation implements RouteActionInterface {
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PacketService packetService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyClassifierInterface policyClassifier;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected HostService hostService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected InterRouteConfigurationService config;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected IntraRouteActionInterface intraRouteActionInterface;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected InterRouteActionInterface interRouteActionInterface;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PacketPipelineService pipelineService;
+
+    private ApplicationId appId;
+    private final RoutingPacketProcessor processor = new RoutingPacketProcessor();
+
+    @Activate
+    public void activate(ComponentContext context) {
+        appId = coreService.registerApplication("org.onosproject.PolicyBasedPacketProcessor");
+        packetService.addProcessor(processor, PacketProcessor.director(3));
+        requestIntercepts();
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        withdrawIntercepts();
+        packetService.removeProcessor(processor);
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        requestIntercepts();
+    }
+
+    /**
+     * Request packet in via packet service.
+     */
+    private void requestIntercepts() {
+        TrafficSelector.Builder selector = DefaultTrafficSelector.builder();
+        selector.matchEthType(Ethernet.TYPE_IPV4);
+        packetService.requestPackets(selector.build(), PacketPriority.REACTIVE, appId);
+        selector.matchEthType(Ethernet.TYPE_ARP);
+        packetService.requestPackets(selector.build(), PacketPriority.REACTIVE, appId);
+    }
+
+    /**
+     * Cancel request for packet in via packet service.
+     */
+    private void withdrawIntercepts() {
+        TrafficSelector.Builder selector = DefaultTrafficSelector.builder();
+        selector.matchEthType(Ethernet.TYPE_IPV4);
+        packetService.cancelPackets(selector.build(), PacketPriority.REACTIVE, appId);
+        selector.matchEthType(Ethernet.TYPE_ARP);
+        packetService.cancelPackets(selector.build(), PacketPriority.REACTIVE, appId);
+    }
+
+    /**
+     * Checks an Ethernet Packet is a control packet or not.
+     *
+     * @param eth Ethernet packet
+     * @return type of a control packet
+     */
+    private boolean isControlPacket(Ethernet eth) {
+        short type = eth.getEtherType();
+
+        return type == Ethernet.TYPE_LLDP || type == Ethernet.TYPE_BSN;
+    }
+
+    /**
+     * Replies to ARP requests for the virtual gateway IP addresses.
+     *
+     * @param ethPkt          Ethernet packet carrying the ARP packet
+     * @param srcConnectPoint connect point the packet was received from
+     */
+    private void processArp(Ethernet ethPkt, ConnectPoint srcConnectPoint) {
+        ARP arpPacket = (ARP) ethPkt.getPayload();
+        if (arpPacket.getOpCode() != ARP.OP_REQUEST) {
+            return;
+        }
+        Ip4Address targetIpAddress = Ip4Address
+                .valueOf(arpPacket.getTargetProtocolAddress());
+        if (!config.isVirtualGatewayIpAddress(targetIpAddress)) {
+            return;
+        }
+        MacAddress gatewayMacAddress = config.getVirtualGatewayMacAddress();
+        if (gatewayMacAddress == null) {
+            return;
+        }
+
+        Ethernet eth = ARP.buildArpReply(targetIpAddress, gatewayMacAddress, ethPkt);
+        TrafficTreatment treatment = DefaultTrafficTreatment.builder()
+                .setOutput(srcConnectPoint.port()).build();
+        packetService.emit(new DefaultOutboundPacket(
+                srcConnectPoint.deviceId(),
+                treatment,
+                ByteBuffer.wrap(eth.serialize())));
+    }
+
+    /**
+     * Classifies an IPv4 packet-in against the current policies and submits
+     * the matching ones to the packet-in pipeline.
+     *
+     * @param context packet processing context
+     * @param ethPkt  Ethernet packet carrying the IPv4 packet
+     * @param start   time the processing of the packet started
+     */
+    private void processIpv4(PacketContext context, Ethernet ethPkt, long start) {
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        String pktSrcRegion = config.getIp4Region(ipv4Packet.getSourceAddress());
+        String pktDstRegion = config.getIp4Region(ipv4Packet.getDestinationAddress());
+        if (pktSrcRegion == null || pktDstRegion == null) {
+            return;
+        }
+
+        VlanId vlanId = VlanId.vlanId(ethPkt.getVlanID());
+        HostId srcHost = HostId.hostId(ethPkt.getSourceMAC(), vlanId);
+        HostId dstHost = HostId.hostId(ethPkt.getDestinationMAC(), vlanId);
+        DefaultPolicy intraPolicy = policyClassifier.classify(OperationsList.INTRA_ROUTE,
+                pktSrcRegion, pktDstRegion, ethPkt, srcHost, dstHost);
+        DefaultPolicy interPolicy = null;
+        DefaultPolicy reverseInterPolicy = null;
+        if (!policyClassifier.isEmpty(OperationsList.INTER_ROUTE)) {
+            // The destination MAC address of inter-domain traffic is the one
+            // of a gateway, the destination host is resolved by its IP
+            // address, only if a policy with hosts may need it.
+            HostId dstIpHost = policyClassifier.hasHostPolicies(OperationsList.INTER_ROUTE) ?
+                    hostByIp(ipv4Packet.getDestinationAddress()) : null;
+            interPolicy = policyClassifier.classify(OperationsList.INTER_ROUTE,
+                    pktSrcRegion, pktDstRegion, ethPkt, srcHost, dstIpHost);
+            // An inter-route policy applies to both directions of the traffic.
+            if (!pktSrcRegion.equals(pktDstRegion)) {
+                reverseInterPolicy = policyClassifier.classify(OperationsList.INTER_ROUTE,
+                        pktDstRegion, pktSrcRegion, ethPkt, srcHost, dstIpHost);
+            }
+        }
+        pipelineService.recordLatency(PipelineStage.CLASSIFY, System.nanoTime() - start);
+        if (intraPolicy == null && interPolicy == null && reverseInterPolicy == null) {
+            return;
+        }
+
+        // The packet belongs to policy routing: it is blocked before it is
+        // queued so that no other processor handles it, and dropped if the
+        // queue is full.
+        context.block();
+
+        // Packets of a flow are routed in order by the same worker.
+        int flowHash = 31 * ipv4Packet.getSourceAddress() + ipv4Packet.getDestinationAddress();
+        DefaultPolicy forwardInterPolicy = interPolicy;
+        DefaultPolicy backwardInterPolicy = reverseInterPolicy;
+        if (!pipelineService.submit(flowHash, () -> {
+            if (intraPolicy != null) {
+                intraRouteActionInterface.intraRouteProcess(intraPolicy, context);
+            }
+            if (forwardInterPolicy != null) {
+                interRouteActionInterface.interRouteProcess(forwardInterPolicy, context);
+            }
+            if (backwardInterPolicy != null) {
+                interRouteActionInterface.interRouteProcess(backwardInterPolicy, context);
+            }
+        })) {
+            log.debug("Routing queue is full, dropping packet-in from {}",
+                    context.inPacket().receivedFrom());
+        }
+    }
+
+    /**
+     * Returns the ID of a host based on its IP address.
+     *
+     * @param ipAddress IPv4 address of the host
+     * @return host ID, or null if the host is not known
+     */
+    private HostId hostByIp(int ipAddress) {
+        Set<Host> hosts = hostService.getHostsByIp(Ip4Address.valueOf(ipAddress));
+        return hosts.isEmpty() ? null : hosts.iterator().next().id();
+    }
+
+    /**
+     * Packet processor responsible for extracting low level match fields
+     * based on current active polices.
+     */
+    private class RoutingPacketProcessor implements PacketProcessor {
+
+        @Override
+        public void process(PacketContext context) {
+
+            long start = System.nanoTime();
+            InboundPacket pkt = context.inPacket();
+            Ethernet ethPkt = pkt.parsed();
+            if (ethPkt == null || isControlPacket(ethPkt)) {
+                return;
+            }
+            if (context.isHandled()) {
+                return;
+            }
+
+            switch (EthType.EtherType.lookup(ethPkt.getEtherType())) {
+                case ARP:
+                    processArp(ethPkt, pkt.receivedFrom());
+                    break;
+                case IPV4:
+                    processIpv4(context, ethPkt, start);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
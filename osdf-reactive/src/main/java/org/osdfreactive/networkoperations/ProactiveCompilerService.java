@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import org.osdfreactive.policies.DefaultPolicy;
+
+/**
+ * Proactive policy compiler. When enabled, a policy naming its source and
+ * destination hosts is compiled on install request into wildcard flow rules
+ * along the paths between its hosts, so that its traffic never reaches the
+ * controller.
+ */
+public interface ProactiveCompilerService {
+
+    /**
+     * Compiles a policy into flow rules and submits them.
+     *
+     * @param policy policy
+     * @return number of flow rules submitted, 0 if the policy can not be
+     * compiled proactively
+     */
+    int compile(DefaultPolicy policy);
+
+    /**
+     * Evaluates whether policies are compiled on install request.
+     *
+     * @return true if proactive compilation is enabled, otherwise false
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the number of policies compiled proactively.
+     *
+     * @return compiled policy count
+     */
+    long compiledCount();
+
+    /**
+     * Returns the number of flow rules submitted for proactive policies.
+     *
+     * @return rule count
+     */
+    long ruleCount();
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.util.Tools;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.event.Event;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostListener;
+import org.onosproject.net.host.HostService;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyListener;
+import org.onosproject.net.topology.TopologyService;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policyparser.PathCacheInterface;
+import org.osdfreactive.policyparser.SelectorTemplate;
+import org.osdfreactive.policystorage.PolicyEvent;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Proactive policy compiler.
+ * <p>
+ * For every ordered pair of a source and a destination host of a policy,
+ * two rule sets are installed along the paths between them: one from the
+ * source to the destination application port, and one back from it.
+ * Rules match the host addresses, the transport protocol, the
+ * application port and the criteria of the traffic profile, leaving the
+ * client port wildcarded, and are permanent. They are recorded against
+ * the policy and removed with it. A policy whose criteria can not be
+ * selected by flow rules stays reactive.
+ * <p>
+ * Since the traffic of a compiled policy never reaches the controller
+ * again, a policy is recompiled when one of its hosts is discovered, moves
+ * or leaves, and when the topology changes around the devices its rules
+ * are on. Only the rules which changed are installed or removed.
+ */
+@Component(immediate = true)
+@Service
+public class ProactivePolicyCompiler implements ProactiveCompilerService {
+
+    private static final int TABLE_ID = 0;
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected HostService hostService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PathCacheInterface pathCache;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PathInstallService pathInstallService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected TopologyService topologyService;
+
+    @Property(name = "proactiveEnabled", boolValue = false,
+            label = "Enable compiling policies with source and destination hosts into " +
+                    "wildcard flow rules when they are added; default is false")
+    private volatile boolean proactiveEnabled = false;
+
+    private final PolicyListener policyListener = new InternalPolicyListener();
+    private final HostListener hostListener = new InternalHostListener();
+    private final TopologyListener topologyListener = new InternalTopologyListener();
+    private final AtomicLong compiled = new AtomicLong();
+    private final AtomicLong rules = new AtomicLong();
+    // Compiled policies by policy ID, with the rules they were compiled into.
+    private final ConcurrentMap<Integer, Compilation> compilations = Maps.newConcurrentMap();
+    private ApplicationId appId;
+    // Recompilations run once the event has reached the path cache.
+    private ExecutorService recompileExecutor;
+
+    @Activate
+    public void activate(ComponentContext context) {
+        appId = coreService.registerApplication("org.onosproject.PolicyBasedRouting");
+        recompileExecutor = Executors.newSingleThreadExecutor(
+                groupedThreads("onos/osdf-reactive", "proactive-recompile", log));
+        readComponentConfiguration(context);
+        policyService.addListener(policyListener);
+        hostService.addListener(hostListener);
+        topologyService.addListener(topologyListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        topologyService.removeListener(topologyListener);
+        hostService.removeListener(hostListener);
+        policyService.removeListener(policyListener);
+        recompileExecutor.shutdownNow();
+        compilations.clear();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean proactiveEnabledConfigured = Tools.isPropertyEnabled(properties, "proactiveEnabled");
+        if (proactiveEnabledConfigured == null) {
+            log.info("Proactive compilation is not configured, " +
+                    "using current value of {}", proactiveEnabled);
+        } else {
+            proactiveEnabled = proactiveEnabledConfigured;
+            log.info("Configured. Proactive compilation is {}",
+                    proactiveEnabled ? "enabled" : "disabled");
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return proactiveEnabled;
+    }
+
+    @Override
+    public long compiledCount() {
+        return compiled.get();
+    }
+
+    @Override
+    public long ruleCount() {
+        return rules.get();
+    }
+
+    @Override
+    public synchronized int compile(DefaultPolicy policy) {
+        int policyId = policy.getPolicyId().getPolicyId();
+        List<HostId> srcHosts = policy.getSrcHostsList();
+        List<HostId> dstHosts = policy.getDstHostsList();
+        if (srcHosts == null || srcHosts.isEmpty() || dstHosts == null || dstHosts.isEmpty()
+                || policy.getTrafficProfile() == null) {
+            log.debug("Policy {} does not name its hosts and traffic, it stays reactive",
+                    policyId);
+            return 0;
+        }
+        SelectorTemplate template;
+        try {
+            template = SelectorTemplate.compile(policy.getTrafficProfile(), true, true, false);
+        } catch (IllegalArgumentException e) {
+            log.debug("Policy {} has unsupported criteria, it stays reactive: {}",
+                    policyId, e.getMessage());
+            return 0;
+        }
+        if (!template.isExpressible()) {
+            log.debug("The traffic of policy {} can not be selected by flow rules, it stays reactive",
+                    policyId);
+            return 0;
+        }
+
+        List<DefaultFlowRule> policyRules = new ArrayList<>();
+        boolean complete = true;
+        for (HostId srcId : srcHosts) {
+            for (HostId dstId : dstHosts) {
+                Host src = hostService.getHost(srcId);
+                Host dst = hostService.getHost(dstId);
+                if (src == null || dst == null) {
+                    log.info("Host {} of policy {} is not known yet, it is compiled once discovered",
+                            src == null ? srcId : dstId, policyId);
+                    complete = false;
+                    continue;
+                }
+                if (src.equals(dst)) {
+                    continue;
+                }
+                Ip4Address srcIp = ip4Address(src);
+                Ip4Address dstIp = ip4Address(dst);
+                if (srcIp == null || dstIp == null) {
+                    log.info("Host {} of policy {} has no IPv4 address yet",
+                            srcIp == null ? srcId : dstId, policyId);
+                    complete = false;
+                    continue;
+                }
+                // A direction excluded by the criteria carries no policy traffic.
+                TrafficSelector.Builder forward = template.hostSelector(srcIp, dstIp, false);
+                if (forward != null) {
+                    complete &= compilePath(policy, src.location(), dst.location(),
+                            forward, policyRules);
+                }
+                TrafficSelector.Builder reply = template.hostSelector(dstIp, srcIp, true);
+                if (reply != null) {
+                    complete &= compilePath(policy, dst.location(), src.location(),
+                            reply, policyRules);
+                }
+            }
+        }
+
+        Compilation previous = compilations.get(policyId);
+        Map<FlowId, DefaultFlowRule> previousRules = previous == null ? ImmutableMap.of() : previous.rules;
+        Map<FlowId, DefaultFlowRule> currentRules = Maps.newHashMap();
+        policyRules.forEach(rule -> currentRules.put(rule.id(), rule));
+        compilations.put(policyId, new Compilation(policy, currentRules, complete));
+
+        // Rules sharing a flow ID match the same traffic on the same device,
+        // adding a rule with another output modifies the installed one.
+        List<DefaultFlowRule> added = new ArrayList<>();
+        for (DefaultFlowRule rule : currentRules.values()) {
+            DefaultFlowRule installed = previousRules.get(rule.id());
+            if (installed == null || !installed.treatment().equals(rule.treatment())) {
+                added.add(rule);
+            }
+        }
+        List<FlowRule> removed = new ArrayList<>();
+        for (DefaultFlowRule rule : previousRules.values()) {
+            if (!currentRules.containsKey(rule.id())) {
+                removed.add(rule);
+            }
+        }
+        if (!removed.isEmpty()) {
+            flowRuleService.removeFlowRules(removed.toArray(new FlowRule[removed.size()]));
+        }
+        if (!added.isEmpty()) {
+            pathInstallService.install(policy, added);
+            rules.addAndGet(added.size());
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return 0;
+        }
+
+        compiled.incrementAndGet();
+        log.info("Compiled policy {} into {} flow rules, {} installed and {} removed",
+                policyId, currentRules.size(), added.size(), removed.size());
+        return added.size();
+    }
+
+    /**
+     * Recompiles the compiled policies matching a condition, off the event
+     * dispatch thread.
+     *
+     * @param affected condition on a compilation
+     */
+    private void recompile(Predicate<Compilation> affected) {
+        if (!proactiveEnabled) {
+            return;
+        }
+        recompileExecutor.execute(() -> {
+            for (Compilation compilation : ImmutableSet.copyOf(compilations.values())) {
+                if (affected.test(compilation)
+                        && compilations.get(compilation.policyId()) == compilation) {
+                    compile(compilation.policy);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets the compilation of a withdrawn policy, once a compilation in
+     * progress is done, so that it is not recompiled.
+     *
+     * @param policyId policy ID
+     */
+    private synchronized void forget(int policyId) {
+        compilations.remove(policyId);
+    }
+
+    private static Ip4Address ip4Address(Host host) {
+        return host.ipAddresses().stream()
+                .filter(IpAddress::isIp4)
+                .map(IpAddress::getIp4Address)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Generates the flow rules of one direction between two host locations
+     * along the path selected for a policy.
+     *
+     * @param policy   policy
+     * @param src      source host location
+     * @param dst      destination host location
+     * @param selector traffic selector builder
+     * @param rules    list the rules are added to
+     * @return true if the rules have been generated, false if there is no path
+     */
+    private boolean compilePath(DefaultPolicy policy, HostLocation src, HostLocation dst,
+                                TrafficSelector.Builder selector, List<DefaultFlowRule> rules) {
+        if (src.deviceId().equals(dst.deviceId())) {
+            rules.add(rule(policy, dst, selector));
+            return true;
+        }
+        Path path = pathCache.getPath(src.deviceId(), dst.deviceId(), policy,
+                Objects.hash(src, dst));
+        if (path == null) {
+            log.warn("No path from {} to {} for policy {}", src, dst,
+                    policy.getPolicyId().getPolicyId());
+            return false;
+        }
+        for (Link link : path.links()) {
+            rules.add(rule(policy, link.src(), selector));
+        }
+        rules.add(rule(policy, dst, selector));
+        return true;
+    }
+
+    private DefaultFlowRule rule(DefaultPolicy policy,
+                                 ConnectPoint output,
+                                 TrafficSelector.Builder selector) {
+        TrafficSelector ruleSelector = selector.build();
+        return (DefaultFlowRule) DefaultFlowRule.builder()
+                .withPriority(policy.getPriority())
+                .makePermanent()
+                .forDevice(output.deviceId())
+                .withSelector(ruleSelector)
+                .withTreatment(DefaultTrafficTreatment.builder()
+                        .setOutput(output.port())
+                        .build())
+                .withCookie(PolicyCookie.of(appId, policy, output.deviceId(), ruleSelector,
+                        policy.getPriority(), TABLE_ID))
+                .forTable(TABLE_ID)
+                .build();
+    }
+
+    /**
+     * Policy compiled into flow rules.
+     */
+    private static final class Compilation {
+        private final DefaultPolicy policy;
+        private final Map<FlowId, DefaultFlowRule> rules;
+        private final Set<DeviceId> devices;
+        // False if a host or a path was missing.
+        private final boolean complete;
+
+        private Compilation(DefaultPolicy policy, Map<FlowId, DefaultFlowRule> rules,
+                            boolean complete) {
+            this.policy = policy;
+            this.rules = ImmutableMap.copyOf(rules);
+            Set<DeviceId> ruleDevices = new HashSet<>();
+            rules.values().forEach(rule -> ruleDevices.add(rule.deviceId()));
+            this.devices = ImmutableSet.copyOf(ruleDevices);
+            this.complete = complete;
+        }
+
+        private int policyId() {
+            return policy.getPolicyId().getPolicyId();
+        }
+
+        private boolean namesHost(HostId hostId) {
+            return policy.getSrcHostsList().contains(hostId)
+                    || policy.getDstHostsList().contains(hostId);
+        }
+
+        private boolean crossesAny(Collection<DeviceId> deviceIds) {
+            return deviceIds.stream().anyMatch(devices::contains);
+        }
+    }
+
+    /**
+     * Compiles policies when their installation is requested, and forgets
+     * them once they are withdrawn; their rules are removed with them.
+     */
+    private class InternalPolicyListener implements PolicyListener {
+        @Override
+        public void event(PolicyEvent event) {
+            if (!(event.subject() instanceof DefaultPolicy)) {
+                return;
+            }
+            switch (event.type()) {
+                case INSTALL_REQ:
+                    if (proactiveEnabled) {
+                        compile((DefaultPolicy) event.subject());
+                    }
+                    break;
+                case WITHDRAW_REQ:
+                case WITHDRAWN:
+                case PURGED:
+                    forget(event.subject().getPolicyId().getPolicyId());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Recompiles the policies naming a host discovered, moved or removed.
+     */
+    private class InternalHostListener implements HostListener {
+        @Override
+        public void event(HostEvent event) {
+            switch (event.type()) {
+                case HOST_ADDED:
+                case HOST_MOVED:
+                case HOST_REMOVED:
+                case HOST_UPDATED:
+                    HostId hostId = event.subject().id();
+                    recompile(compilation -> compilation.namesHost(hostId));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Recompiles the policies with rules on the devices a topology change
+     * touches, and the policies which could not be fully compiled.
+     */
+    private class InternalTopologyListener implements TopologyListener {
+        @Override
+        public void event(TopologyEvent event) {
+            List<Event> reasons = event.reasons();
+            if (reasons == null || reasons.isEmpty()) {
+                recompile(compilation -> true);
+                return;
+            }
+            Set<DeviceId> deviceIds = new HashSet<>();
+            for (Event reason : reasons) {
+                if (reason instanceof LinkEvent) {
+                    Link link = ((LinkEvent) reason).subject();
+                    deviceIds.add(link.src().deviceId());
+                    deviceIds.add(link.dst().deviceId());
+                } else if (reason instanceof DeviceEvent) {
+                    deviceIds.add(((DeviceEvent) reason).subject().id());
+                }
+            }
+            recompile(compilation -> !compilation.complete || compilation.crossesAny(deviceIds));
+        }
+    }
+}
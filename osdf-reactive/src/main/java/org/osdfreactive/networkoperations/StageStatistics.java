@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Snapshot of the latency statistics of a pipeline stage.
+ */
+public final class StageStatistics {
+
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    /**
+     * Creates stage statistics.
+     *
+     * @param count      number of recorded executions
+     * @param totalNanos total latency in nanoseconds
+     * @param maxNanos   maximum latency in nanoseconds
+     */
+    public StageStatistics(long count, long totalNanos, long maxNanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Returns the number of recorded executions.
+     *
+     * @return execution count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the average latency.
+     *
+     * @return average latency in nanoseconds
+     */
+    public long averageNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Returns the maximum latency.
+     *
+     * @return maximum latency in nanoseconds
+     */
+    public long maxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("count", count)
+                .add("averageNanos", averageNanos())
+                .add("maxNanos", maxNanos)
+                .toString();
+    }
+}
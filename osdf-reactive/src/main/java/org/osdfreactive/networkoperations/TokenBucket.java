@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter refilled continuously at a fixed rate.
+ */
+public final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratePerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+    private final AtomicLong blockedUntil;
+
+    /**
+     * Creates a full token bucket.
+     *
+     * @param ratePerSecond number of tokens added per second
+     * @param burst         maximum number of tokens
+     * @param now           current time in nanoseconds
+     */
+    public TokenBucket(int ratePerSecond, int burst, long now) {
+        this.ratePerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = now;
+        this.blockedUntil = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from the bucket if there is one.
+     *
+     * @param now current time in nanoseconds
+     * @return true if a token has been taken, otherwise false
+     */
+    public synchronized boolean tryAcquire(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Evaluates whether the owner of the bucket is blocked.
+     *
+     * @param now current time in nanoseconds
+     * @return true if the owner is blocked, otherwise false
+     */
+    public boolean isBlocked(long now) {
+        return now - blockedUntil.get() < 0;
+    }
+
+    /**
+     * Blocks the owner of the bucket until a given time, unless it is
+     * already blocked; only one of concurrent callers blocks it.
+     *
+     * @param now   current time in nanoseconds
+     * @param until end of the block in nanoseconds
+     * @return true if the owner has been blocked by this call, otherwise false
+     */
+    public boolean tryBlock(long now, long until) {
+        long current = blockedUntil.get();
+        return now - current >= 0 && blockedUntil.compareAndSet(current, until);
+    }
+}
@@ -49,8 +49,10 @@ public interface CreatePolicyInterface {
      * @param srcRegion         source region
      * @param dstRegion         dst region
      * @param action            action.
+     * @return the created policy, which holds a newly allocated policy ID
+     * @throws IllegalStateException if every policy ID is allocated
      */
-    void createPolicy(String policyName,
+    Policy createPolicy(String policyName,
                       int priority,
                       PolicyState policyState,
                       int version,
@@ -82,13 +84,4 @@ public interface CreatePolicyInterface {
      * @param action
      */
 
-
-    /**
-     * Returns a created policy.
-     *
-     * @return a policy
-     */
-
-
-    Policy getPolicy();
 }
@@ -20,6 +20,8 @@ package org.osdfreactive.policies;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.HostId;
@@ -44,13 +46,14 @@ public class DefaultCreatePolicy
         implements CreatePolicyInterface {
 
     private final Logger log = Logger.getLogger(getClass().getName());
-    DefaultPolicy policy;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyIdAllocatorInterface policyIdAllocator;
 
 
     @Activate
     public void activate() {
         log.info("Started");
-        policy = null;
 
 
     }
@@ -79,26 +82,27 @@ public class DefaultCreatePolicy
      * @param srcRegion         source region
      * @param dstRegion         dst region
      * @param action            action
+     * @return the created policy
      */
-    public void createPolicy(String policyName,
-                             int priority,
-                             PolicyState policyState,
-                             int version,
-                             List<ConnectPoint> connectPointList,
-                             List<HostId> srcHostsList,
-                             List<HostId> dstHostsList,
-                             PathSelectionAlgos pathSelectionAlgo,
-                             TrafficProfile trafficProfile,
-                             Region srcRegion,
-                             Region dstRegion,
-                             OperationsList action) {
+    @Override
+    public Policy createPolicy(String policyName,
+                               int priority,
+                               PolicyState policyState,
+                               int version,
+                               List<ConnectPoint> connectPointList,
+                               List<HostId> srcHostsList,
+                               List<HostId> dstHostsList,
+                               PathSelectionAlgos pathSelectionAlgo,
+                               TrafficProfile trafficProfile,
+                               Region srcRegion,
+                               Region dstRegion,
+                               OperationsList action) {
 
         DefaultPolicyId defaultPolicyId;
-        defaultPolicyId = new DefaultPolicyId();
-        defaultPolicyId.createPolicyId(policyName);
+        defaultPolicyId = new DefaultPolicyId(policyIdAllocator.allocate(), policyName);
 
 
-        policy = DefaultPolicy
+        return DefaultPolicy
                 .builder()
                 .policyId(defaultPolicyId)
                 .priority(priority)
@@ -118,15 +122,4 @@ public class DefaultCreatePolicy
     }
 
 
-    /**
-     * Returns a created policy.
-     *
-     * @return a policy
-     */
-    @Override
-    public Policy getPolicy() {
-
-        return policy;
-    }
-
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policies;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.osdfreactive.policystorage.PolicyEvent;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.slf4j.Logger;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Lock-free policy ID allocator.
+ * <p>
+ * IDs are handed out from a counter, and the IDs of withdrawn policies are
+ * kept in a sorted free list and reused lowest first. IDs are bounded by
+ * the highest ID a policy cookie can encode, beyond which allocation
+ * fails rather than aliasing the rules of another policy. An ID is only
+ * released once the rules of its policy have been removed, so that a new
+ * policy never inherits rules carrying its ID; a policy whose rules could
+ * not all be removed is CORRUPT and keeps its ID until it is purged.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultPolicyIdAllocator implements PolicyIdAllocatorInterface {
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+
+    private final PolicyListener policyListener = new InternalPolicyListener();
+    private final ConcurrentSkipListSet<Integer> freeIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    @Activate
+    public void activate() {
+        policyService.addListener(policyListener);
+        // IDs of the current policies stay in use, the gaps between them
+        // are free.
+        Set<Integer> usedIds = new HashSet<>();
+        for (Policy policy : policyService.getCurrentPolicies()) {
+            usedIds.add(policy.getPolicyId().getPolicyId());
+        }
+        int maxId = usedIds.stream().mapToInt(Integer::intValue).max().orElse(-1);
+        for (int id = 0; id < maxId; id++) {
+            if (!usedIds.contains(id)) {
+                freeIds.add(id);
+            }
+        }
+        nextId.set(maxId + 1);
+        allocated.set(usedIds.size());
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        policyService.removeListener(policyListener);
+        log.info("Stopped");
+    }
+
+    @Override
+    public int allocate() {
+        Integer policyId = freeIds.pollFirst();
+        if (policyId == null) {
+            policyId = nextId.getAndUpdate(id -> id > PolicyCookie.MAX_POLICY_ID ? id : id + 1);
+            if (policyId > PolicyCookie.MAX_POLICY_ID) {
+                throw new IllegalStateException("No policy ID left, "
+                        + allocated.get() + " policies are allocated");
+            }
+        }
+        allocated.incrementAndGet();
+        return policyId;
+    }
+
+    @Override
+    public void release(int policyId) {
+        if (policyId < 0 || policyId >= nextId.get()) {
+            return;
+        }
+        if (freeIds.add(policyId)) {
+            allocated.decrementAndGet();
+        }
+    }
+
+    @Override
+    public int allocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Releases the IDs of the policies whose rules have been removed.
+     */
+    private class InternalPolicyListener implements PolicyListener {
+        @Override
+        public void event(PolicyEvent event) {
+            switch (event.type()) {
+                case WITHDRAWN:
+                case PURGED:
+                    release(event.subject().getPolicyId().getPolicyId());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
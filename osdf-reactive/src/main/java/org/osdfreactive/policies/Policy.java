@@ -28,7 +28,7 @@ public abstract class Policy {
     public static final int POLICY_MAX_PRIORITY = (1 << 16) - 1;
     private final DefaultPolicyId policyId;
     private int priority;
-    private PolicyState policyState;
+    private volatile PolicyState policyState;
     private int version;
 
 
@@ -90,6 +90,15 @@ public abstract class Policy {
 
     }
 
+    /**
+     * Sets the state of a Policy.
+     *
+     * @param policyState policy state
+     */
+    public void setPolicyState(PolicyState policyState) {
+        this.policyState = policyState;
+    }
+
     public int getVersion() {
         return version;
     }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policies;
+
+import org.onosproject.core.ApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.TrafficSelector;
+
+/**
+ * Flow rule cookie identifying the policy a rule has been installed for.
+ * <p>
+ * The ID of the application installing the rule is encoded in bits 63 to
+ * 48, where the flow rule subsystem reads the application of a rule built
+ * with a cookie. The policy ID is encoded in bits 47 to 32, the policy
+ * version in bits 31 to 24, and a hash of the device, match and priority
+ * of the rule in the low 24 bits. The cookie is used as the flow ID of the
+ * rule, so the hash keeps the rules of a policy apart on a device, and the
+ * owner of a rule read back from a device table is known without a lookup.
+ */
+public final class PolicyCookie {
+
+    /**
+     * Highest policy ID a cookie can encode.
+     */
+    public static final int MAX_POLICY_ID = 0xFFFF;
+
+    private static final int APP_ID_SHIFT = 48;
+    private static final int POLICY_ID_SHIFT = 32;
+    private static final int VERSION_SHIFT = 24;
+    private static final long APP_ID_MASK = 0xFFFFL;
+    private static final long POLICY_ID_MASK = MAX_POLICY_ID;
+    private static final long VERSION_MASK = 0xFFL;
+    private static final long HASH_MASK = (1L << VERSION_SHIFT) - 1;
+    private static final long POLICY_MASK = ((1L << APP_ID_SHIFT) - 1) & ~HASH_MASK;
+
+    private PolicyCookie() {
+    }
+
+    /**
+     * Returns the cookie of a rule of a policy.
+     *
+     * @param appId    application installing the rule
+     * @param policy   policy the rule is installed for
+     * @param deviceId device of the rule
+     * @param selector match of the rule
+     * @param priority priority of the rule
+     * @param tableId  table of the rule
+     * @return flow rule cookie
+     */
+    public static long of(ApplicationId appId, Policy policy, DeviceId deviceId,
+                          TrafficSelector selector, int priority, int tableId) {
+        long hash = deviceId.hashCode();
+        hash = 31 * hash + selector.hashCode();
+        hash = 31 * hash + priority;
+        hash = 31 * hash + tableId;
+        return (appId.id() & APP_ID_MASK) << APP_ID_SHIFT
+                | prefix(policy.getPolicyId().getPolicyId(), policy.getVersion())
+                | (mix(hash) & HASH_MASK);
+    }
+
+    /**
+     * Evaluates whether a cookie has been issued by a given application.
+     *
+     * @param cookie flow rule cookie
+     * @param appId  an application
+     * @return true if the rule has been installed by the application, otherwise false
+     */
+    public static boolean isIssuedBy(long cookie, ApplicationId appId) {
+        return (cookie >>> APP_ID_SHIFT) == (appId.id() & APP_ID_MASK);
+    }
+
+    /**
+     * Returns the policy ID encoded in a cookie.
+     *
+     * @param cookie flow rule cookie
+     * @return policy ID
+     */
+    public static int policyIdOf(long cookie) {
+        return (int) ((cookie >>> POLICY_ID_SHIFT) & POLICY_ID_MASK);
+    }
+
+    /**
+     * Returns the policy version encoded in a cookie.
+     *
+     * @param cookie flow rule cookie
+     * @return policy version
+     */
+    public static int versionOf(long cookie) {
+        return (int) ((cookie >>> VERSION_SHIFT) & VERSION_MASK);
+    }
+
+    /**
+     * Evaluates whether a cookie belongs to a given version of a policy; the
+     * application bits are not compared.
+     *
+     * @param cookie flow rule cookie
+     * @param policy a policy
+     * @return true if the rule has been installed for the policy, otherwise false
+     */
+    public static boolean isOwnedBy(long cookie, Policy policy) {
+        return (cookie & POLICY_MASK) == prefix(policy.getPolicyId().getPolicyId(), policy.getVersion());
+    }
+
+    private static long prefix(int policyId, int version) {
+        return (policyId & POLICY_ID_MASK) << POLICY_ID_SHIFT
+                | (version & VERSION_MASK) << VERSION_SHIFT;
+    }
+
+    /**
+     * Spreads a hash with the MurmurHash3 finalizer.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policies;
+
+/**
+ * Policy ID allocator interface.
+ */
+public interface PolicyIdAllocatorInterface {
+
+    /**
+     * Allocates a policy ID, reusing the lowest released ID if any.
+     *
+     * @return policy ID
+     * @throws IllegalStateException if every policy ID is allocated
+     */
+    int allocate();
+
+    /**
+     * Releases a policy ID so that it can be allocated again.
+     *
+     * @param policyId policy ID
+     */
+    void release(int policyId);
+
+    /**
+     * Returns the number of allocated policy IDs.
+     *
+     * @return allocated ID count
+     */
+    int allocatedCount();
+}
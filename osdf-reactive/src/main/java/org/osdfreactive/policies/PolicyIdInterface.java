@@ -35,12 +35,4 @@ public interface PolicyIdInterface {
      */
     String getPolicyName();
 
-
-    /**
-     * Creates a policy Id based on a given name.
-     *
-     * @param policyName policy name
-     */
-    void createPolicyId(String policyName);
-
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.Link;
+import org.onosproject.net.link.LinkService;
+import org.onosproject.net.statistic.Load;
+import org.onosproject.net.statistic.StatisticService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A default implementation of the link load snapshot, built from the
+ * statistic service on a fixed period and published as an immutable map.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultLinkLoad implements LinkLoadInterface {
+
+    private static final int DEFAULT_REFRESH_PERIOD = 5;
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LinkService linkService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected StatisticService statisticService;
+
+    @Property(name = "loadRefreshPeriod", intValue = DEFAULT_REFRESH_PERIOD,
+            label = "Configure the period link loads are refreshed at in seconds; " +
+                    "default is 5 sec")
+    private int loadRefreshPeriod = DEFAULT_REFRESH_PERIOD;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            groupedThreads("onos/osdf-reactive", "link-load", log));
+    private ScheduledFuture<?> refreshTask;
+    private volatile Map<ConnectPoint, Long> loads = ImmutableMap.of();
+    private volatile long snapshotTime;
+
+    @Activate
+    public void activate(ComponentContext context) {
+        readComponentConfiguration(context);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        executor.shutdownNow();
+        loads = ImmutableMap.of();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private synchronized void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        int newPeriod = Tools.getIntegerProperty(properties, "loadRefreshPeriod",
+                DEFAULT_REFRESH_PERIOD);
+        if (newPeriod <= 0) {
+            newPeriod = DEFAULT_REFRESH_PERIOD;
+        }
+        if (refreshTask == null || newPeriod != loadRefreshPeriod) {
+            loadRefreshPeriod = newPeriod;
+            if (refreshTask != null) {
+                refreshTask.cancel(false);
+            }
+            refreshTask = executor.scheduleAtFixedRate(this::refresh, 0,
+                    loadRefreshPeriod, TimeUnit.SECONDS);
+        }
+        log.info("Configured. Link loads are refreshed every {} sec", loadRefreshPeriod);
+    }
+
+    /**
+     * Takes a new snapshot of the load of the active links.
+     */
+    private void refresh() {
+        try {
+            Map<ConnectPoint, Long> snapshot = Maps.newHashMap();
+            for (Link link : linkService.getActiveLinks()) {
+                Load load = statisticService.load(link);
+                if (load != null && load.isValid()) {
+                    snapshot.put(link.src(), load.rate());
+                }
+            }
+            loads = ImmutableMap.copyOf(snapshot);
+            snapshotTime = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic refresh.
+            log.warn("Failed to refresh link loads", e);
+        }
+    }
+
+    @Override
+    public long getLoad(Link link) {
+        Long load = loads.get(link.src());
+        return load == null ? 0 : load;
+    }
+
+    @Override
+    public Map<ConnectPoint, Long> getLoads() {
+        return loads;
+    }
+
+    @Override
+    public long getSnapshotTime() {
+        return snapshotTime;
+    }
+}
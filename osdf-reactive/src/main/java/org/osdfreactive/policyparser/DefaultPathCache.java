@@ -0,0 +1,458 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.onosproject.event.Event;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultPath;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyListener;
+import org.onosproject.net.topology.TopologyService;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A default implementation of the path cache.
+ * <p>
+ * ON_DEMAND paths are computed from the current topology for every flow.
+ * PRECOMPUTED paths come from the next-hop tables of the regions, and from
+ * the cache when a table is not ready. When no shortest path crosses the
+ * waypoints of a policy, a path is stitched from the shortest segments
+ * between them and memoized. ECMP, RANDOM and BEST_POSSIBLE_PATH
+ * selections are made per flow from the cached shortest paths. Removed
+ * or updated links, ports and devices only drop the entries whose paths
+ * cross them. Added links may give any pair of devices a shorter path,
+ * so they drop every entry. Each cache is bounded, the least recently
+ * used entries are evicted first.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultPathCache implements PathCacheInterface {
+
+    private static final ProviderId PROVIDER_ID = new ProviderId("osdf", "org.osdfreactive");
+    private static final int DEFAULT_MAX_PATHS = 10000;
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected TopologyService topologyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PathSelectionInterface pathSelection;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PrecomputedPathInterface precomputedPaths;
+
+    @Property(name = "maxPaths", intValue = DEFAULT_MAX_PATHS,
+            label = "Configure the maximum number of entries of each path cache; " +
+                    "default is 10000")
+    private int maxPaths = DEFAULT_MAX_PATHS;
+
+    private final TopologyListener topologyListener = new InternalTopologyListener();
+    private volatile Cache<PathKey, Set<Path>> paths = newCache(DEFAULT_MAX_PATHS);
+    private volatile Cache<PathKey, Path> selections = newCache(DEFAULT_MAX_PATHS);
+    private volatile Cache<PathKey, Path> waypointPaths = newCache(DEFAULT_MAX_PATHS);
+    // Bumped on every topology change, so that paths computed against an
+    // older topology are not cached.
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong recomputes = new AtomicLong();
+    private final AtomicLong recomputeNanos = new AtomicLong();
+
+    @Activate
+    public void activate(ComponentContext context) {
+        readComponentConfiguration(context);
+        topologyService.addListener(topologyListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        topologyService.removeListener(topologyListener);
+        invalidateAll();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        int newMaxPaths = Tools.getIntegerProperty(properties, "maxPaths", DEFAULT_MAX_PATHS);
+        if (newMaxPaths != maxPaths) {
+            maxPaths = newMaxPaths;
+            generation.incrementAndGet();
+            paths = newCache(maxPaths);
+            selections = newCache(maxPaths);
+            waypointPaths = newCache(maxPaths);
+        }
+        log.info("Configured. Maximum number of entries of each path cache is configured to {}", maxPaths);
+    }
+
+    private static <V> Cache<PathKey, V> newCache(int maximumSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public Set<Path> getPaths(DeviceId src, DeviceId dst) {
+        PathKey key = PathKey.of(src, dst);
+        Set<Path> cached = paths.getIfPresent(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return computePaths(key);
+    }
+
+    @Override
+    public Path getPath(DeviceId src, DeviceId dst, DefaultPolicy policy, int flowHash) {
+        List<ConnectPoint> waypoints = policy.getDeviceList();
+        boolean hasWaypoints = waypoints != null && !waypoints.isEmpty();
+        if (policy.getPathSelectionAlgo() == PathSelectionAlgos.ON_DEMAND) {
+            return getOnDemandPath(src, dst, policy, hasWaypoints);
+        }
+        if (policy.getPathSelectionAlgo() == PathSelectionAlgos.PRECOMPUTED && !hasWaypoints) {
+            Path precomputed = precomputedPaths.getPath(src, dst);
+            if (precomputed != null) {
+                hits.incrementAndGet();
+                return precomputed;
+            }
+        }
+        if (hasWaypoints) {
+            Path waypointPath = waypointPaths.getIfPresent(PathKey.of(src, dst, policy));
+            if (waypointPath != null) {
+                hits.incrementAndGet();
+                return waypointPath;
+            }
+        }
+        Set<Path> candidates = getPaths(src, dst);
+        if (hasWaypoints
+                && candidates.stream().noneMatch(path -> pathSelection.crossesWaypoints(path, policy))) {
+            // No shortest path crosses the waypoints, route through them.
+            return stitchWaypointPath(src, dst, policy);
+        }
+
+        // Each flow gets its own pick among the shortest paths.
+        switch (policy.getPathSelectionAlgo()) {
+            case ECMP:
+                return pathSelection.pickEcmpPath(candidates, policy, flowHash);
+            case RANDOM:
+                return pathSelection.pickRandomPath(candidates, policy);
+            case BEST_POSSIBLE_PATH:
+                return pathSelection.pickLeastLoadedPath(candidates, policy);
+            default:
+                break;
+        }
+
+        PathKey key = PathKey.of(src, dst, policy);
+        Path cached = selections.getIfPresent(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long currentGeneration = generation.get();
+        long start = System.nanoTime();
+        Path selected = pathSelection.getEndtoEndPath(candidates, policy);
+        recordRecompute(System.nanoTime() - start);
+        if (selected != null) {
+            cacheIfCurrent(selections, key, selected, currentGeneration);
+        }
+        return selected;
+    }
+
+    /**
+     * Computes the shortest paths between two devices from the current
+     * topology and selects one for a policy, bypassing the cache.
+     *
+     * @param src          source device
+     * @param dst          destination device
+     * @param policy       policy
+     * @param hasWaypoints whether the policy has waypoints
+     * @return path, or null if the devices are not connected
+     */
+    private Path getOnDemandPath(DeviceId src, DeviceId dst, DefaultPolicy policy,
+                                 boolean hasWaypoints) {
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        Set<Path> candidates = topologyService.getPaths(topologyService.currentTopology(), src, dst);
+        Path selected = pathSelection.getEndtoEndPath(candidates, policy);
+        recordRecompute(System.nanoTime() - start);
+        if (selected == null && hasWaypoints) {
+            return stitchWaypointPath(src, dst, policy);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the path through the waypoints of a policy, stitched from the
+     * shortest segments between them. It is memoized until the topology
+     * changes under it.
+     *
+     * @param src    source device
+     * @param dst    destination device
+     * @param policy policy
+     * @return path, or null if no loop free path crosses the waypoints
+     */
+    private Path stitchWaypointPath(DeviceId src, DeviceId dst, DefaultPolicy policy) {
+        PathKey key = PathKey.of(src, dst, policy);
+        misses.incrementAndGet();
+
+        long currentGeneration = generation.get();
+        long start = System.nanoTime();
+        Path stitched = stitch(key);
+        recordRecompute(System.nanoTime() - start);
+        if (stitched == null || !pathSelection.crossesWaypoints(stitched, policy)) {
+            log.warn("No loop free path from {} to {} crosses the waypoints {} of policy {}",
+                    src, dst, key.waypoints(), policy.getPolicyId().getPolicyId());
+            return null;
+        }
+        cacheIfCurrent(waypointPaths, key, stitched, currentGeneration);
+        return stitched;
+    }
+
+    /**
+     * Stitches the shortest segments from the source device through the
+     * device of each waypoint to the destination device. A segment entering
+     * or leaving a waypoint through its port is preferred.
+     *
+     * @param key path key
+     * @return stitched path, or null if a segment is missing or the path
+     * loops
+     */
+    private Path stitch(PathKey key) {
+        // Devices to go through, with the waypoint of each one if any.
+        List<DeviceId> hops = new ArrayList<>();
+        List<ConnectPoint> hopWaypoints = new ArrayList<>();
+        hops.add(key.src());
+        hopWaypoints.add(null);
+        for (ConnectPoint waypoint : key.waypoints()) {
+            int last = hops.size() - 1;
+            if (hops.get(last).equals(waypoint.deviceId())) {
+                if (hopWaypoints.get(last) == null) {
+                    hopWaypoints.set(last, waypoint);
+                }
+                continue;
+            }
+            hops.add(waypoint.deviceId());
+            hopWaypoints.add(waypoint);
+        }
+        if (!hops.get(hops.size() - 1).equals(key.dst())) {
+            hops.add(key.dst());
+            hopWaypoints.add(null);
+        }
+
+        List<Link> links = new ArrayList<>();
+        Set<DeviceId> visited = Sets.newHashSet(key.src());
+        for (int i = 1; i < hops.size(); i++) {
+            Path segment = pickSegment(getPaths(hops.get(i - 1), hops.get(i)),
+                    hopWaypoints.get(i - 1), hopWaypoints.get(i));
+            if (segment == null) {
+                return null;
+            }
+            for (Link link : segment.links()) {
+                if (!visited.add(link.dst().deviceId())) {
+                    return null;
+                }
+                links.add(link);
+            }
+        }
+        return links.isEmpty() ? null : new DefaultPath(PROVIDER_ID, links, links.size());
+    }
+
+    private static Path pickSegment(Set<Path> segments, ConnectPoint from, ConnectPoint to) {
+        Path selected = null;
+        int bestScore = -1;
+        for (Path segment : segments) {
+            List<Link> links = segment.links();
+            int score = 0;
+            if (from != null && links.get(0).src().equals(from)) {
+                score++;
+            }
+            if (to != null && links.get(links.size() - 1).dst().equals(to)) {
+                score++;
+            }
+            if (score > bestScore) {
+                selected = segment;
+                bestScore = score;
+            }
+        }
+        return selected;
+    }
+
+    private Set<Path> computePaths(PathKey key) {
+        long currentGeneration = generation.get();
+        long start = System.nanoTime();
+        Set<Path> computed = ImmutableSet.copyOf(
+                topologyService.getPaths(topologyService.currentTopology(), key.src(), key.dst()));
+        recordRecompute(System.nanoTime() - start);
+        cacheIfCurrent(paths, key, computed, currentGeneration);
+        return computed;
+    }
+
+    private void recordRecompute(long nanos) {
+        recomputes.incrementAndGet();
+        recomputeNanos.addAndGet(nanos);
+    }
+
+    private <V> void cacheIfCurrent(Cache<PathKey, V> cache, PathKey key,
+                                    V value, long computedGeneration) {
+        cache.put(key, value);
+        if (generation.get() != computedGeneration) {
+            // The topology changed while computing, the value may be stale.
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidations.addAndGet(size());
+        paths.invalidateAll();
+        selections.invalidateAll();
+        waypointPaths.invalidateAll();
+    }
+
+    private void invalidate(Predicate<Link> changed) {
+        Predicate<Path> crossesChange = path -> path.links().stream().anyMatch(changed);
+        int before = size();
+        paths.asMap().values().removeIf(candidates -> candidates.stream().anyMatch(crossesChange));
+        selections.asMap().values().removeIf(crossesChange);
+        waypointPaths.asMap().values().removeIf(crossesChange);
+        invalidations.addAndGet(Math.max(0, before - size()));
+    }
+
+    private static boolean touches(Link link, DeviceId deviceId) {
+        return link.src().deviceId().equals(deviceId) || link.dst().deviceId().equals(deviceId);
+    }
+
+    private static boolean touches(Link link, ConnectPoint connectPoint) {
+        return link.src().equals(connectPoint) || link.dst().equals(connectPoint);
+    }
+
+    @Override
+    public int size() {
+        return (int) (paths.size() + selections.size() + waypointPaths.size());
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long invalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public long averageRecomputeNanos() {
+        long count = recomputes.get();
+        return count == 0 ? 0 : recomputeNanos.get() / count;
+    }
+
+    /**
+     * Drops the cached paths affected by topology changes.
+     */
+    private class InternalTopologyListener implements TopologyListener {
+
+        @Override
+        public void event(TopologyEvent event) {
+            generation.incrementAndGet();
+            List<Event> reasons = event.reasons();
+            if (reasons == null || reasons.isEmpty()) {
+                invalidateAll();
+                return;
+            }
+
+            for (Event reason : reasons) {
+                if (reason instanceof LinkEvent) {
+                    LinkEvent linkEvent = (LinkEvent) reason;
+                    if (linkEvent.type() == LinkEvent.Type.LINK_ADDED) {
+                        invalidateAll();
+                        return;
+                    }
+                    Link changedLink = linkEvent.subject();
+                    invalidate(link -> link.src().equals(changedLink.src())
+                            && link.dst().equals(changedLink.dst()));
+                } else if (reason instanceof DeviceEvent) {
+                    DeviceEvent deviceEvent = (DeviceEvent) reason;
+                    DeviceId deviceId = deviceEvent.subject().id();
+                    switch (deviceEvent.type()) {
+                        case DEVICE_REMOVED:
+                        case DEVICE_AVAILABILITY_CHANGED:
+                            invalidate(link -> touches(link, deviceId));
+                            break;
+                        case PORT_UPDATED:
+                        case PORT_REMOVED:
+                            ConnectPoint connectPoint =
+                                    new ConnectPoint(deviceId, deviceEvent.port().number());
+                            invalidate(link -> touches(link, connectPoint));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
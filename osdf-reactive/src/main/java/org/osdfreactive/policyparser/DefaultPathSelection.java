@@ -16,6 +16,9 @@
 
 package org.osdfreactive.policyparser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -29,10 +32,15 @@ import org.onosproject.net.topology.TopologyService;
 import org.osdfreactive.policies.DefaultPolicy;
 import org.slf4j.Logger;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -46,10 +54,18 @@ public class DefaultPathSelection
         extends AbstractPathSelection
         implements PathSelectionInterface {
 
+    private static final long IDLE_PATH_MINUTES = 10;
+
     private final Logger log = getLogger(getClass());
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LinkLoadInterface linkLoad;
     private PathSelectionAlgos pathSelectionAlgo;
+    // Flows assigned to each ECMP path, forgotten once a path is unused.
+    private final Cache<List<Link>, AtomicLong> flowCounts = CacheBuilder.newBuilder()
+            .expireAfterAccess(IDLE_PATH_MINUTES, TimeUnit.MINUTES)
+            .build();
 
     @Activate
     public void activate() {
@@ -83,6 +99,9 @@ public class DefaultPathSelection
             case "ON_DEMAND":
                 this.pathSelectionAlgo = PathSelectionAlgos.ON_DEMAND;
                 break;
+            case "PRECOMPUTED":
+                this.pathSelectionAlgo = PathSelectionAlgos.PRECOMPUTED;
+                break;
             default:
                 this.pathSelectionAlgo = PathSelectionAlgos.BEST_POSSIBLE_PATH;
                 break;
@@ -103,27 +122,137 @@ public class DefaultPathSelection
      * @return A path.
      */
     public Path pickRandomPath(Set<Path> paths, DefaultPolicy policy) {
-        Path selectedPath = null;
-        Random rnd = new Random();
-        int item = 0;
-        if (!paths.isEmpty()) {
-            item = rnd.nextInt(paths.size());
-
+        if (paths.isEmpty()) {
+            return null;
         }
+        int item = ThreadLocalRandom.current().nextInt(paths.size());
         int i = 0;
-
         for (Path path : paths) {
-
-            selectedPath = path;
             if (i == item) {
-                return selectedPath;
+                return path;
             }
             i++;
+        }
+        return null;
+    }
 
+    /**
+     * Picks an equal-cost path for a flow by rendezvous hashing: every path
+     * is scored against the flow hash and the highest score wins. A flow
+     * keeps its path as long as the path exists, and adding or removing a
+     * path only moves the flows which gain or lose it.
+     *
+     * @param paths    a set of paths
+     * @param policy   a policy, its waypoints restrict the candidates
+     * @param flowHash hash of the flow 5-tuple
+     * @return a path, or null if there is none
+     */
+    public Path pickEcmpPath(Set<Path> paths, DefaultPolicy policy, int flowHash) {
+        Path selectedPath = null;
+        long bestScore = Long.MIN_VALUE;
+        for (Path path : candidatesOf(paths, policy)) {
+            long score = score(flowHash, pathHash(path));
+            if (selectedPath == null || score > bestScore) {
+                selectedPath = path;
+                bestScore = score;
+            }
+        }
+        if (selectedPath != null) {
+            flowCounts.asMap().computeIfAbsent(selectedPath.links(), links -> new AtomicLong())
+                    .incrementAndGet();
         }
         return selectedPath;
+    }
 
+    /**
+     * Picks the path whose most loaded link carries the least traffic,
+     * according to the last link load snapshot. Ties go to the shortest
+     * path.
+     *
+     * @param paths  a set of paths
+     * @param policy a policy, its waypoints restrict the candidates
+     * @return a path, or null if there is none
+     */
+    public Path pickLeastLoadedPath(Set<Path> paths, DefaultPolicy policy) {
+        Path selectedPath = null;
+        long bestLoad = Long.MAX_VALUE;
+        for (Path path : candidatesOf(paths, policy)) {
+            long bottleneckLoad = 0;
+            for (Link link : path.links()) {
+                bottleneckLoad = Math.max(bottleneckLoad, linkLoad.getLoad(link));
+            }
+            if (selectedPath == null || bottleneckLoad < bestLoad
+                    || bottleneckLoad == bestLoad
+                    && path.links().size() < selectedPath.links().size()) {
+                selectedPath = path;
+                bestLoad = bottleneckLoad;
+            }
+        }
+        return selectedPath;
+    }
 
+    /**
+     * Returns the paths crossing the waypoints of a policy, or every path if
+     * none of them does.
+     *
+     * @param paths  a set of paths
+     * @param policy a policy
+     * @return candidate paths
+     */
+    private static Collection<Path> candidatesOf(Set<Path> paths, DefaultPolicy policy) {
+        List<ConnectPoint> waypoints = policy.getDeviceList();
+        if (waypoints == null || waypoints.isEmpty()) {
+            return paths;
+        }
+        List<Path> crossingPaths = paths.stream()
+                .filter(path -> crossesAll(path, waypoints))
+                .collect(Collectors.toList());
+        return crossingPaths.isEmpty() ? paths : crossingPaths;
+    }
+
+    private static boolean crossesAll(Path path, List<ConnectPoint> waypoints) {
+        Set<ConnectPoint> pathConnectPoints = new HashSet<>();
+        for (Link link : path.links()) {
+            pathConnectPoints.add(link.src());
+            pathConnectPoints.add(link.dst());
+        }
+        return pathConnectPoints.containsAll(waypoints);
+    }
+
+    /**
+     * Returns a hash of the links of a path which does not depend on the
+     * instance of the path.
+     *
+     * @param path a path
+     * @return path hash
+     */
+    private static int pathHash(Path path) {
+        int result = 1;
+        for (Link link : path.links()) {
+            result = 31 * result + link.src().hashCode();
+            result = 31 * result + link.dst().hashCode();
+        }
+        return result;
+    }
+
+    /**
+     * Mixes a flow hash and a path hash with the MurmurHash3 finalizer.
+     */
+    private static long score(int flowHash, int pathHash) {
+        long h = ((long) flowHash << 32) | (pathHash & 0xFFFFFFFFL);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public Map<List<Link>, Long> getPathFlowCounts() {
+        ImmutableMap.Builder<List<Link>, Long> counts = ImmutableMap.builder();
+        flowCounts.asMap().forEach((links, count) -> counts.put(links, count.get()));
+        return counts.build();
     }
 
 
@@ -132,34 +261,28 @@ public class DefaultPathSelection
      *
      * @param endToEndPaths end to end paths
      * @param policy        a policy
-     * @return a path
+     * @return the first path crossing the waypoints of the policy, or null
+     * if none does
      */
     public Path getEndtoEndPath(Set<Path> endToEndPaths, DefaultPolicy policy) {
-
-        List<ConnectPoint> connectPointList;
-        connectPointList = policy.getDeviceList();
-
-
-        Set<ConnectPoint> pathDeviceIdSet = new HashSet<>();
-        Path selectedEndPath = null;
         for (Path endToEndPath : endToEndPaths) {
-            selectedEndPath = endToEndPath;
-            for (Link link : endToEndPath.links()) {
-                pathDeviceIdSet.add(link.src());
-                pathDeviceIdSet.add(link.dst());
-
-            }
-            if (pathDeviceIdSet.containsAll(connectPointList)) {
-                selectedEndPath = endToEndPath;
-                break;
-
+            if (crossesWaypoints(endToEndPath, policy)) {
+                return endToEndPath;
             }
-
-
         }
+        return null;
+    }
 
-        //log.info("Selected path " + SelectedEndPath.toString());
-        return selectedEndPath;
+    /**
+     * Checks whether a path crosses every waypoint of a policy.
+     *
+     * @param path   a path
+     * @param policy a policy
+     * @return true if the path crosses the waypoints, or if there is none
+     */
+    public boolean crossesWaypoints(Path path, DefaultPolicy policy) {
+        List<ConnectPoint> waypoints = policy.getDeviceList();
+        return waypoints == null || waypoints.isEmpty() || crossesAll(path, waypoints);
     }
 
 
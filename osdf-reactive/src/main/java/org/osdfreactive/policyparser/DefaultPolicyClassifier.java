@@ -0,0 +1,441 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+import org.onosproject.net.HostId;
+import org.onosproject.net.region.Region;
+import org.osdfreactive.networkoperations.OperationsList;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.Policy;
+import org.osdfreactive.policystorage.PolicyEvent;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Tuple space search classifier.
+ * <p>
+ * A policy is stored in one of three tuples according to the fields its
+ * traffic profile specifies: protocol and application port, protocol only,
+ * or neither. The tuples of an action between two regions are held
+ * together and resolved once per packet; each tuple is looked up by the
+ * protocol and port it specifies, and its bucket holds the policies
+ * ordered by descending priority. A packet probes the application port
+ * tuple with its source and destination ports, then the protocol tuple,
+ * then the wildcard tuple; in each bucket the first policy whose match
+ * criteria and hosts accept the packet is the candidate, and buckets which
+ * can not beat the current candidate are skipped. The tuples of a region
+ * pair are copied on write, so a policy change only rebuilds its own
+ * region pair and lookups neither lock nor allocate. Changes are
+ * serialized, and the entry of each policy is kept by ID so that a policy
+ * added again leaves the tuple it was in before.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultPolicyClassifier implements PolicyClassifierInterface {
+
+    private static final int ANY = -1;
+    // Bits of a port in a tuple key, with room for ANY.
+    private static final int PORT_BITS = 17;
+    private static final Comparator<Entry> PRIORITY_ORDER =
+            Comparator.comparingInt((Entry entry) -> entry.policy.getPriority()).reversed()
+                    .thenComparingInt(entry -> entry.policy.getPolicyId().getPolicyId());
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+
+    private final PolicyListener policyListener = new InternalPolicyListener();
+    // Tuples by action, source region and destination region. Maps of a
+    // source region are kept once empty, there are as many as regions.
+    private final Map<OperationsList, ConcurrentMap<String, ConcurrentMap<String, RegionTuples>>> tuples =
+            Maps.newEnumMap(OperationsList.class);
+    private final Map<OperationsList, AtomicInteger> sizes = Maps.newEnumMap(OperationsList.class);
+    private final Map<OperationsList, AtomicInteger> hostSizes = Maps.newEnumMap(OperationsList.class);
+    // Classified entries by policy ID, guarded by this.
+    private final Map<Integer, Entry> entries = Maps.newHashMap();
+
+    public DefaultPolicyClassifier() {
+        for (OperationsList action : OperationsList.values()) {
+            tuples.put(action, Maps.newConcurrentMap());
+            sizes.put(action, new AtomicInteger());
+            hostSizes.put(action, new AtomicInteger());
+        }
+    }
+
+    @Activate
+    public void activate() {
+        policyService.addListener(policyListener);
+        for (Policy policy : policyService.getCurrentPolicies()) {
+            add((DefaultPolicy) policy);
+        }
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        policyService.removeListener(policyListener);
+        synchronized (this) {
+            entries.clear();
+            tuples.values().forEach(Map::clear);
+            sizes.values().forEach(size -> size.set(0));
+            hostSizes.values().forEach(size -> size.set(0));
+        }
+        log.info("Stopped");
+    }
+
+    @Override
+    public int size() {
+        return sizes.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Override
+    public boolean isEmpty(OperationsList action) {
+        return sizes.get(action).get() == 0;
+    }
+
+    @Override
+    public boolean hasHostPolicies(OperationsList action) {
+        return hostSizes.get(action).get() > 0;
+    }
+
+    @Override
+    public DefaultPolicy classify(OperationsList action, String srcRegionId, String dstRegionId,
+                                  Ethernet ethPkt, HostId srcHost, HostId dstHost) {
+        if (ethPkt.getEtherType() != Ethernet.TYPE_IPV4) {
+            return null;
+        }
+        Map<String, RegionTuples> dstTuples = tuples.get(action).get(srcRegionId);
+        RegionTuples regionTuples = dstTuples == null ? null : dstTuples.get(dstRegionId);
+        if (regionTuples == null) {
+            return null;
+        }
+
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        int protocol = ipv4Packet.getProtocol() & 0xff;
+        // Non-first fragments carry no transport header, their payload is
+        // raw data and only the protocol and wildcard tuples apply.
+        IPacket payload = ipv4Packet.getPayload();
+        int srcPort = ANY;
+        int dstPort = ANY;
+        if (payload instanceof TCP) {
+            TCP tcpPacket = (TCP) payload;
+            srcPort = tcpPacket.getSourcePort();
+            dstPort = tcpPacket.getDestinationPort();
+        } else if (payload instanceof UDP) {
+            UDP udpPacket = (UDP) payload;
+            srcPort = udpPacket.getSourcePort();
+            dstPort = udpPacket.getDestinationPort();
+        }
+
+        Entry best = null;
+        if (dstPort != ANY) {
+            best = probe(regionTuples.bucket(protocol, dstPort), best,
+                    ethPkt, srcHost, dstHost);
+            if (srcPort != dstPort) {
+                best = probe(regionTuples.bucket(protocol, srcPort), best,
+                        ethPkt, srcHost, dstHost);
+            }
+        }
+        best = probe(regionTuples.bucket(protocol, ANY), best,
+                ethPkt, srcHost, dstHost);
+        best = probe(regionTuples.bucket(ANY, ANY), best,
+                ethPkt, srcHost, dstHost);
+        return best == null ? null : best.policy;
+    }
+
+    /**
+     * Looks a bucket up for a policy ordered before the current candidate.
+     *
+     * @return the new candidate, or the current one
+     */
+    private static Entry probe(List<Entry> bucket, Entry best, Ethernet ethPkt,
+                               HostId srcHost, HostId dstHost) {
+        if (bucket == null) {
+            return best;
+        }
+        for (Entry entry : bucket) {
+            if (best != null && PRIORITY_ORDER.compare(entry, best) >= 0) {
+                return best;
+            }
+            if (entry.matches(ethPkt, srcHost, dstHost)) {
+                return entry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds a policy to the classifier, replacing the policy with the same
+     * ID wherever it is classified.
+     *
+     * @param policy policy
+     */
+    synchronized void add(DefaultPolicy policy) {
+        int policyId = policy.getPolicyId().getPolicyId();
+        Entry entry = Entry.of(policy);
+        Entry previous = entry == null ? entries.remove(policyId) : entries.put(policyId, entry);
+        if (previous != null) {
+            unclassify(previous);
+        }
+        if (entry == null) {
+            log.warn("Policy {} has no action, regions or traffic profile, it will never match a packet",
+                    policyId);
+            return;
+        }
+        tuples.get(entry.action)
+                .computeIfAbsent(entry.srcRegionId, k -> Maps.newConcurrentMap())
+                .compute(entry.dstRegionId, (k, regionTuples) -> {
+                    RegionTuples current = regionTuples == null ? RegionTuples.EMPTY : regionTuples;
+                    List<Entry> bucket = current.bucket(entry.key);
+                    List<Entry> updated = bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+                    updated.add(entry);
+                    updated.sort(PRIORITY_ORDER);
+                    return current.with(entry.key, updated);
+                });
+        sizes.get(entry.action).incrementAndGet();
+        if (entry.hasHosts()) {
+            hostSizes.get(entry.action).incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes a policy from the classifier.
+     *
+     * @param policy policy
+     */
+    synchronized void remove(DefaultPolicy policy) {
+        Entry previous = entries.remove(policy.getPolicyId().getPolicyId());
+        if (previous != null) {
+            unclassify(previous);
+        }
+    }
+
+    /**
+     * Removes an entry from the tuple it is classified in.
+     *
+     * @param entry classified entry
+     */
+    private void unclassify(Entry entry) {
+        Map<String, RegionTuples> dstTuples = tuples.get(entry.action).get(entry.srcRegionId);
+        if (dstTuples == null) {
+            return;
+        }
+        dstTuples.computeIfPresent(entry.dstRegionId, (k, regionTuples) -> {
+            List<Entry> bucket = regionTuples.bucket(entry.key);
+            if (bucket == null) {
+                return regionTuples;
+            }
+            List<Entry> updated = new ArrayList<>(bucket);
+            if (updated.remove(entry)) {
+                sizes.get(entry.action).decrementAndGet();
+                if (entry.hasHosts()) {
+                    hostSizes.get(entry.action).decrementAndGet();
+                }
+            }
+            RegionTuples result = regionTuples.with(entry.key, updated);
+            return result.isEmpty() ? null : result;
+        });
+    }
+
+    /**
+     * Key of the tuple of a protocol and a port, either may be ANY.
+     */
+    private static int tupleKey(int protocol, int port) {
+        return (protocol + 1) << PORT_BITS | (port + 1);
+    }
+
+    /**
+     * Tuples of an action between two regions: buckets sorted by tuple key,
+     * looked up by binary search.
+     */
+    private static final class RegionTuples {
+        private static final RegionTuples EMPTY = new RegionTuples(new int[0], ImmutableList.of());
+
+        private final int[] keys;
+        private final List<List<Entry>> buckets;
+
+        private RegionTuples(int[] keys, List<List<Entry>> buckets) {
+            this.keys = keys;
+            this.buckets = buckets;
+        }
+
+        private boolean isEmpty() {
+            return keys.length == 0;
+        }
+
+        private List<Entry> bucket(int protocol, int port) {
+            return bucket(tupleKey(protocol, port));
+        }
+
+        private List<Entry> bucket(int key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : buckets.get(index);
+        }
+
+        /**
+         * Returns a copy of the tuples with the bucket of a key replaced;
+         * an empty bucket is dropped.
+         */
+        private RegionTuples with(int key, List<Entry> bucket) {
+            int index = Arrays.binarySearch(keys, key);
+            List<List<Entry>> updated = new ArrayList<>(buckets);
+            int[] updatedKeys;
+            if (index >= 0) {
+                if (bucket.isEmpty()) {
+                    updated.remove(index);
+                    updatedKeys = new int[keys.length - 1];
+                    System.arraycopy(keys, 0, updatedKeys, 0, index);
+                    System.arraycopy(keys, index + 1, updatedKeys, index, keys.length - index - 1);
+                } else {
+                    updated.set(index, ImmutableList.copyOf(bucket));
+                    updatedKeys = keys;
+                }
+            } else if (bucket.isEmpty()) {
+                return this;
+            } else {
+                int insertion = -index - 1;
+                updated.add(insertion, ImmutableList.copyOf(bucket));
+                updatedKeys = new int[keys.length + 1];
+                System.arraycopy(keys, 0, updatedKeys, 0, insertion);
+                updatedKeys[insertion] = key;
+                System.arraycopy(keys, insertion, updatedKeys, insertion + 1, keys.length - insertion);
+            }
+            return new RegionTuples(updatedKeys, ImmutableList.copyOf(updated));
+        }
+    }
+
+    /**
+     * Classified policy with its compiled match template and host sets.
+     */
+    private static final class Entry {
+        private final DefaultPolicy policy;
+        private final OperationsList action;
+        private final String srcRegionId;
+        private final String dstRegionId;
+        private final int key;
+        private final SelectorTemplate template;
+        private final Set<HostId> srcHosts;
+        private final Set<HostId> dstHosts;
+
+        private Entry(DefaultPolicy policy, String srcRegionId, String dstRegionId,
+                      int key, SelectorTemplate template) {
+            this.policy = policy;
+            this.action = policy.getAction();
+            this.srcRegionId = srcRegionId;
+            this.dstRegionId = dstRegionId;
+            this.key = key;
+            this.template = template;
+            this.srcHosts = policy.getSrcHostsList() == null ? ImmutableSet.of()
+                    : ImmutableSet.copyOf(policy.getSrcHostsList());
+            this.dstHosts = policy.getDstHostsList() == null ? ImmutableSet.of()
+                    : ImmutableSet.copyOf(policy.getDstHostsList());
+        }
+
+        private static Entry of(DefaultPolicy policy) {
+            Region srcRegion = policy.getSrcRegion();
+            Region dstRegion = policy.getDstRegion();
+            if (policy.getAction() == null || srcRegion == null || dstRegion == null
+                    || policy.getTrafficProfile() == null) {
+                return null;
+            }
+            // The application port always belongs to the traffic of a
+            // policy, whatever fields its rules match.
+            SelectorTemplate template = SelectorTemplate.compile(policy.getTrafficProfile(),
+                    true, true, false);
+            int protocol = template.ipProtocol();
+            int port = protocol == SelectorTemplate.ANY_PROTOCOL ? ANY : template.appPort();
+            return new Entry(policy, srcRegion.id().toString(), dstRegion.id().toString(),
+                    tupleKey(protocol, port), template);
+        }
+
+        private boolean hasHosts() {
+            return !srcHosts.isEmpty() || !dstHosts.isEmpty();
+        }
+
+        /**
+         * Evaluates the match criteria and the hosts of the policy; a flow
+         * belongs to a policy with hosts in either direction.
+         */
+        private boolean matches(Ethernet ethPkt, HostId srcHost, HostId dst) {
+            if (!template.matches(ethPkt)) {
+                return false;
+            }
+            if (!hasHosts()) {
+                return true;
+            }
+            if (srcHosts.isEmpty()) {
+                return dstHosts.contains(dst) || dstHosts.contains(srcHost);
+            } else if (dstHosts.isEmpty()) {
+                return srcHosts.contains(srcHost) || srcHosts.contains(dst);
+            } else {
+                return srcHosts.contains(srcHost) && dstHosts.contains(dst)
+                        || srcHosts.contains(dst) && dstHosts.contains(srcHost);
+            }
+        }
+    }
+
+    /**
+     * Updates the classifier as policies are added and withdrawn.
+     */
+    private class InternalPolicyListener implements PolicyListener {
+        @Override
+        public void event(PolicyEvent event) {
+            if (!(event.subject() instanceof DefaultPolicy)) {
+                return;
+            }
+            switch (event.type()) {
+                case INSTALL_REQ:
+                    add((DefaultPolicy) event.subject());
+                    break;
+                case WITHDRAW_REQ:
+                case WITHDRAWN:
+                case PURGED:
+                    remove((DefaultPolicy) event.subject());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
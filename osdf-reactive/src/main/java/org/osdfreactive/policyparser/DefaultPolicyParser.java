@@ -26,20 +26,16 @@ import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.packet.Ethernet;
 import org.onlab.packet.IPv4;
-import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IpPrefix;
 import org.onlab.packet.MacAddress;
-import org.onlab.packet.TpPort;
-import org.onlab.packet.UDP;
 import org.onlab.util.Tools;
 import org.onosproject.net.HostId;
 import org.onosproject.net.Link;
 import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.TrafficSelector;
 import org.onosproject.net.packet.InboundPacket;
-import org.osdfreactive.appsinfo.ApplicationTypes;
+import org.osdfreactive.configuration.InterRouteConfigurationService;
 import org.osdfreactive.policies.DefaultPolicy;
-import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
-import org.osdfreactive.transprotocolsinfo.TransportProtocols;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
@@ -66,13 +62,10 @@ public class DefaultPolicyParser
 
     private final Logger log = getLogger(getClass());
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected HttpPolicyPaserInterface httpPolicyPaser;
+    protected SelectorCompilerInterface selectorCompiler;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected IcmpPolicyParserInterface icmpPolicyParser;
-
-    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
-    protected VstreamingPolicyParserInterface vStreamingPolicyParser;
+    protected InterRouteConfigurationService config;
 
     @Property(name = "packetOutOnly", boolValue = false,
             label = "Enable packet-out only forwarding; default is false")
@@ -105,10 +98,6 @@ public class DefaultPolicyParser
             label = "Enable matching Vlan ID; default is false")
     private boolean matchVlanId = false;
 
-    @Property(name = "matchIpv4Address", boolValue = true,
-            label = "Enable matching IPv4 Addresses; default is false")
-    private boolean matchIpv4Address = true;
-
     @Property(name = "matchIpv4Dscp", boolValue = false,
             label = "Enable matching IPv4 DSCP and ECN; default is false")
     private boolean matchIpv4Dscp = false;
@@ -121,15 +110,6 @@ public class DefaultPolicyParser
             label = "Enable matching IPv6 FlowLabel; default is false")
     private boolean matchIpv6FlowLabel = false;
 
-    @Property(name = "matchTcpUdpPorts", boolValue = true,
-            label = "Enable matching TCP/UDP ports; default is false")
-    private boolean matchTcpUdpPorts = true;
-
-    @Property(name = "matchIcmpFields", boolValue = true,
-            label = "Enable matching ICMPv4 and ICMPv6 fields; " +
-                    "default is false")
-    private boolean matchIcmpFields = true;
-
 
     @Property(name = "ignoreIPv4Multicast", boolValue = false,
             label = "Ignore (do not forward) IPv4 multicast packets; default is false")
@@ -139,6 +119,17 @@ public class DefaultPolicyParser
             label = "Enable record metrics for reactive forwarding")
     private boolean recordMetrics = false;
 
+    @Property(name = "aggregateSelectors", boolValue = false,
+            label = "Enable aggregate selectors matching the addresses, the protocol and " +
+                    "the application port only, instead of every field of a flow; " +
+                    "default is false")
+    private volatile boolean aggregateSelectors = false;
+
+    @Property(name = "aggregateSourcePrefix", boolValue = false,
+            label = "Enable matching the local prefix of the source instead of its address " +
+                    "in aggregate selectors of policies without hosts; default is false")
+    private volatile boolean aggregateSourcePrefix = false;
+
 
     @Activate
     public void activate(ComponentContext context) {
@@ -224,17 +215,6 @@ public class DefaultPolicyParser
                     matchVlanId ? "enabled" : "disabled");
         }
 
-        Boolean matchIpv4AddressEnabled =
-                Tools.isPropertyEnabled(properties, "matchIpv4Address");
-        if (matchIpv4AddressEnabled == null) {
-            log.info("Matching IPv4 Address is not configured, " +
-                    "using current value of {}", matchIpv4Address);
-        } else {
-            matchIpv4Address = matchIpv4AddressEnabled;
-            log.info("Configured. Matching IPv4 Addresses is {}",
-                    matchIpv4Address ? "enabled" : "disabled");
-        }
-
         Boolean matchIpv4DscpEnabled =
                 Tools.isPropertyEnabled(properties, "matchIpv4Dscp");
         if (matchIpv4DscpEnabled == null) {
@@ -268,28 +248,6 @@ public class DefaultPolicyParser
                     matchIpv6FlowLabel ? "enabled" : "disabled");
         }
 
-        Boolean matchTcpUdpPortsEnabled =
-                Tools.isPropertyEnabled(properties, "matchTcpUdpPorts");
-        if (matchTcpUdpPortsEnabled == null) {
-            log.info("Matching TCP/UDP fields is not configured, " +
-                    "using current value of {}", matchTcpUdpPorts);
-        } else {
-            matchTcpUdpPorts = matchTcpUdpPortsEnabled;
-            log.info("Configured. Matching TCP/UDP fields is {}",
-                    matchTcpUdpPorts ? "enabled" : "disabled");
-        }
-
-        Boolean matchIcmpFieldsEnabled =
-                Tools.isPropertyEnabled(properties, "matchIcmpFields");
-        if (matchIcmpFieldsEnabled == null) {
-            log.info("Matching ICMP (v4 and v6) fields is not configured, " +
-                    "using current value of {}", matchIcmpFields);
-        } else {
-            matchIcmpFields = matchIcmpFieldsEnabled;
-            log.info("Configured. Matching ICMP (v4 and v6) fields is {}",
-                    matchIcmpFields ? "enabled" : "disabled");
-        }
-
         Boolean ignoreIpv4McastPacketsEnabled =
                 Tools.isPropertyEnabled(properties, "ignoreIpv4McastPackets");
         if (ignoreIpv4McastPacketsEnabled == null) {
@@ -311,6 +269,28 @@ public class DefaultPolicyParser
                     recordMetrics ? "enabled" : "disabled");
         }
 
+        Boolean aggregateSelectorsEnabled =
+                Tools.isPropertyEnabled(properties, "aggregateSelectors");
+        if (aggregateSelectorsEnabled == null) {
+            log.info("Aggregate selectors are not configured, " +
+                    "using current value of {}", aggregateSelectors);
+        } else {
+            aggregateSelectors = aggregateSelectorsEnabled;
+            log.info("Configured. Aggregate selectors are {}",
+                    aggregateSelectors ? "enabled" : "disabled");
+        }
+
+        Boolean aggregateSourcePrefixEnabled =
+                Tools.isPropertyEnabled(properties, "aggregateSourcePrefix");
+        if (aggregateSourcePrefixEnabled == null) {
+            log.info("Aggregate source prefix is not configured, " +
+                    "using current value of {}", aggregateSourcePrefix);
+        } else {
+            aggregateSourcePrefix = aggregateSourcePrefixEnabled;
+            log.info("Configured. Aggregate source prefix is {}",
+                    aggregateSourcePrefix ? "enabled" : "disabled");
+        }
+
         flowTimeout = Tools.getIntegerProperty(properties, "flowTimeout", DEFAULT_TIMEOUT);
         log.info("Configured. Flow Timeout is configured to {} seconds", flowTimeout);
 
@@ -323,112 +303,46 @@ public class DefaultPolicyParser
                                                               Ethernet ethPkt,
                                                               MacAddress dstMac,
                                                               DefaultPolicy policy) {
-        DefaultTrafficProfile trafficProfile = policy.getTrafficProfile();
-        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
-        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
-
-        HostId dstId = HostId.hostId(ethPkt.getDestinationMAC());
-        HostId srcId = HostId.hostId(ethPkt.getSourceMAC());
-        TransportProtocols transportProtocol = trafficProfile.getApplicationType().getTransportProtocol();
-
-        if (TransportProtocols.TCPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.WEB) {
-            return httpPolicyPaser.interHttpTrafficSelector(pkt, ethPkt, dstMac, policy);
-
-
-        } else if (TransportProtocols.ICMPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.PING) {
-            return icmpPolicyParser.interPingTrafficSelector(pkt, ethPkt, dstMac, policy);
-        } else if (TransportProtocols.TCPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.VIDEO_STREAMING) {
-            return vStreamingPolicyParser.interVideoStreamTrafficSelector(pkt, ethPkt, policy);
-        }
-
-
-        return null;
+        return localTrafficSelector(ethPkt, policy, false);
     }
 
     private TrafficSelector.Builder localIntraTrafficSelector(InboundPacket pkt,
                                                               Ethernet ethPkt,
                                                               Link pathLink,
                                                               DefaultPolicy policy) {
-        DefaultTrafficProfile trafficProfile = policy.getTrafficProfile();
-        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
-        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
-
-        HostId dstId = HostId.hostId(ethPkt.getDestinationMAC());
-        HostId srcId = HostId.hostId(ethPkt.getSourceMAC());
-        TransportProtocols transportProtocol = trafficProfile.getApplicationType().getTransportProtocol();
-
-        if (TransportProtocols.TCPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.WEB) {
-            return httpPolicyPaser.intraHttpTrafficSelector(pkt, ethPkt, policy);
-
-        } else if (TransportProtocols.UDPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.VOIP) {
-            return voipTrafficSelector(pkt, ethPkt, policy);
-
-        } else if (TransportProtocols.ICMPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.PING) {
-            return icmpPolicyParser.intraPingTrafficSelector(pkt, ethPkt, pathLink, policy);
-
-        } else if (TransportProtocols.TCPv4 == transportProtocol
-                && policy.getTrafficProfile().getApplicationType() == ApplicationTypes.VIDEO_STREAMING) {
-
-            return vStreamingPolicyParser.intraVideoStreamTrafficSelector(pkt, ethPkt, policy);
-
-        }
-
-
-        return null;
-
-
+        return localTrafficSelector(ethPkt, policy, true);
     }
 
-    private TrafficSelector.Builder voipTrafficSelector(InboundPacket pkt,
-                                                        Ethernet ethPkt,
-                                                        DefaultPolicy policy) {
-
-        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
-        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
-
-        byte ipv4Protocol = ipv4Packet.getProtocol();
-        if (ipv4Protocol != IPv4.PROTOCOL_UDP
-                || ethPkt.getEtherType() != Ethernet.TYPE_IPV4) {
-            return null;
-        }
-
-
-        if (matchIpv4Address
-                && ethPkt.getEtherType() == Ethernet.TYPE_IPV4
-                && ipv4Packet.getProtocol() == IPv4.PROTOCOL_UDP) {
-
-            Ip4Prefix matchIp4SrcPrefix =
-                    Ip4Prefix.valueOf(ipv4Packet.getSourceAddress(),
-                            Ip4Prefix.MAX_MASK_LENGTH);
-            Ip4Prefix matchIp4DstPrefix =
-                    Ip4Prefix.valueOf(ipv4Packet.getDestinationAddress(),
-                            Ip4Prefix.MAX_MASK_LENGTH);
-            selectorBuilder.matchEthType(Ethernet.TYPE_IPV4)
-                    .matchIPSrc(matchIp4SrcPrefix)
-                    .matchIPDst(matchIp4DstPrefix);
-
-
-            selectorBuilder.matchEthSrc(ethPkt.getSourceMAC());
-            selectorBuilder.matchEthDst(ethPkt.getDestinationMAC());
-
-
+    /**
+     * Builds the selector of a packet for a policy, the aggregate one when
+     * aggregate selectors are enabled so that the flows of a policy between
+     * the same hosts share their rules.
+     * <p>
+     * For policies without hosts, the source address of an aggregate
+     * selector can be widened to its local prefix, as every address of the
+     * prefix belongs to the same region and thus to the same policy. The
+     * destination address is kept, rules forward towards one host.
+     *
+     * @param ethPkt    Ethernet packet
+     * @param policy    policy the selector is built for
+     * @param matchMacs true to match the MAC addresses of exact selectors
+     * @return traffic selector builder, or null if the packet does not
+     * belong to the traffic profile of the policy
+     */
+    private TrafficSelector.Builder localTrafficSelector(Ethernet ethPkt,
+                                                         DefaultPolicy policy,
+                                                         boolean matchMacs) {
+        SelectorTemplate template = selectorCompiler.compile(policy.getTrafficProfile());
+        if (!aggregateSelectors) {
+            return template.selector(ethPkt, matchMacs);
         }
-        if (matchTcpUdpPorts
-                && ipv4Protocol == IPv4.PROTOCOL_UDP) {
-            UDP udpPacket = (UDP) ipv4Packet.getPayload();
-            selectorBuilder.matchIPProtocol(ipv4Protocol)
-                    .matchUdpSrc(TpPort.tpPort((udpPacket.getSourcePort())))
-                    .matchUdpDst(TpPort.tpPort(udpPacket.getDestinationPort()))
-                    .matchIPProtocol(IPv4.PROTOCOL_UDP);
+        IpPrefix srcPrefix = null;
+        if (aggregateSourcePrefix && policy.getSrcHostsList().isEmpty()
+                && policy.getDstHostsList().isEmpty()
+                && ethPkt.getEtherType() == Ethernet.TYPE_IPV4) {
+            srcPrefix = config.getIp4AggregatePrefix(((IPv4) ethPkt.getPayload()).getSourceAddress());
         }
-
-        return selectorBuilder;
+        return template.aggregateSelector(ethPkt, srcPrefix);
     }
 
 
@@ -559,11 +473,9 @@ public class DefaultPolicyParser
 
             return interBuildTrafficSelectorWH(pkt, ethPkt, dstMac, policy);
         } else {
-            log.info("Inter build traffic selector with hosts");
+            log.debug("Inter build traffic selector with hosts");
             return interBuildTrafficSelectorWithHosts(pkt, ethPkt, dstMac, policy);
         }
 
     }
-
-
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onosproject.event.Event;
+import org.onosproject.net.DefaultPath;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.link.LinkService;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.region.Region;
+import org.onosproject.net.region.RegionId;
+import org.onosproject.net.region.RegionService;
+import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyListener;
+import org.onosproject.net.topology.TopologyService;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A default implementation of precomputed paths.
+ * <p>
+ * Next-hop tables are built on a fork-join pool, one destination per task
+ * at most. A topology change drops the tables of the regions it touches and
+ * rebuilds them in the background; lookups fall back to the path cache in
+ * the meantime.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultPrecomputedPaths implements PrecomputedPathInterface {
+
+    private static final ProviderId PROVIDER_ID = new ProviderId("osdf", "org.osdfreactive");
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected TopologyService topologyService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LinkService linkService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected RegionService regionService;
+
+    private final TopologyListener topologyListener = new InternalTopologyListener();
+    private final ConcurrentMap<RegionId, NextHopTable> tables = Maps.newConcurrentMap();
+    private final Set<RegionId> building = Sets.newConcurrentHashSet();
+    // Bumped on every topology change, so that tables built against an
+    // older topology are not kept.
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private ForkJoinPool pool;
+
+    @Activate
+    public void activate() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        topologyService.addListener(topologyListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        topologyService.removeListener(topologyListener);
+        pool.shutdownNow();
+        tables.clear();
+        log.info("Stopped");
+    }
+
+    @Override
+    public Path getPath(DeviceId src, DeviceId dst) {
+        Region region = regionService.getRegionForDevice(src);
+        if (region == null || !region.equals(regionService.getRegionForDevice(dst))) {
+            return null;
+        }
+        NextHopTable table = tables.get(region.id());
+        if (table == null) {
+            scheduleBuild(region.id());
+            return null;
+        }
+        List<Link> links = table.path(src, dst);
+        return links == null ? null : new DefaultPath(PROVIDER_ID, links, links.size());
+    }
+
+    /**
+     * Builds the next-hop table of a region in the background, unless it is
+     * already being built.
+     *
+     * @param regionId region identifier
+     */
+    private void scheduleBuild(RegionId regionId) {
+        if (!building.add(regionId)) {
+            return;
+        }
+        long currentGeneration = generation.get();
+        pool.execute(() -> {
+            boolean stale = false;
+            try {
+                Set<DeviceId> devices = ImmutableSet.copyOf(regionService.getRegionDevices(regionId));
+                NextHopTable table = NextHopTable.build(devices,
+                        ImmutableList.copyOf(linkService.getActiveLinks()), pool);
+                builds.incrementAndGet();
+                tables.put(regionId, table);
+                if (generation.get() != currentGeneration) {
+                    // The topology changed while building, the table may be
+                    // stale; it is built again against the new topology.
+                    stale = tables.remove(regionId, table);
+                }
+                log.debug("Built the next-hop table of region {} for {} devices",
+                        regionId, table.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to build the next-hop table of region {}", regionId, e);
+            } finally {
+                building.remove(regionId);
+            }
+            if (stale && !pool.isShutdown()) {
+                scheduleBuild(regionId);
+            }
+        });
+    }
+
+    /**
+     * Drops the table of the region of a device and rebuilds it.
+     *
+     * @param deviceId device identifier
+     */
+    private void rebuild(DeviceId deviceId) {
+        Region region = regionService.getRegionForDevice(deviceId);
+        if (region != null && tables.remove(region.id()) != null) {
+            scheduleBuild(region.id());
+        }
+    }
+
+    @Override
+    public int tableCount() {
+        return tables.size();
+    }
+
+    @Override
+    public long buildCount() {
+        return builds.get();
+    }
+
+    /**
+     * Rebuilds the next-hop tables of the regions affected by topology
+     * changes.
+     */
+    private class InternalTopologyListener implements TopologyListener {
+
+        @Override
+        public void event(TopologyEvent event) {
+            generation.incrementAndGet();
+            List<Event> reasons = event.reasons();
+            if (reasons == null || reasons.isEmpty()) {
+                Set<RegionId> regionIds = ImmutableSet.copyOf(tables.keySet());
+                tables.clear();
+                regionIds.forEach(DefaultPrecomputedPaths.this::scheduleBuild);
+                return;
+            }
+
+            for (Event reason : reasons) {
+                if (reason instanceof LinkEvent) {
+                    Link link = ((LinkEvent) reason).subject();
+                    rebuild(link.src().deviceId());
+                    rebuild(link.dst().deviceId());
+                } else if (reason instanceof DeviceEvent) {
+                    rebuild(((DeviceEvent) reason).subject().id());
+                }
+            }
+        }
+    }
+}
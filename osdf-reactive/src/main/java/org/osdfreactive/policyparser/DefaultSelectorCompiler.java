@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policystorage.PolicyEvent;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+
+import java.util.Dictionary;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A default implementation of the selector compiler.
+ * <p>
+ * Templates are compiled when the installation of a policy is requested
+ * and kept as long as its traffic profile is referenced. The matched
+ * fields are configured here for every application type.
+ */
+@Component(immediate = true)
+@Service
+public class DefaultSelectorCompiler implements SelectorCompilerInterface {
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected PolicyService policyService;
+
+    @Property(name = "matchIpv4Address", boolValue = true,
+            label = "Enable matching IPv4 Addresses; default is true")
+    private volatile boolean matchIpv4Address = true;
+
+    @Property(name = "matchTcpUdpPorts", boolValue = true,
+            label = "Enable matching TCP/UDP ports; default is true")
+    private volatile boolean matchTcpUdpPorts = true;
+
+    @Property(name = "matchIcmpFields", boolValue = true,
+            label = "Enable matching ICMPv4 type and code; default is true")
+    private volatile boolean matchIcmpFields = true;
+
+    private final PolicyListener policyListener = new InternalPolicyListener();
+    // Profiles are compared by identity and released with their policies.
+    private final Cache<DefaultTrafficProfile, SelectorTemplate> templates =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    @Activate
+    public void activate(ComponentContext context) {
+        readComponentConfiguration(context);
+        policyService.addListener(policyListener);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        policyService.removeListener(policyListener);
+        templates.invalidateAll();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        readComponentConfiguration(context);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        Boolean matchIpv4AddressEnabled =
+                Tools.isPropertyEnabled(properties, "matchIpv4Address");
+        if (matchIpv4AddressEnabled == null) {
+            log.info("Matching IPv4 Address is not configured, " +
+                    "using current value of {}", matchIpv4Address);
+        } else {
+            matchIpv4Address = matchIpv4AddressEnabled;
+            log.info("Configured. Matching IPv4 Addresses is {}",
+                    matchIpv4Address ? "enabled" : "disabled");
+        }
+
+        Boolean matchTcpUdpPortsEnabled =
+                Tools.isPropertyEnabled(properties, "matchTcpUdpPorts");
+        if (matchTcpUdpPortsEnabled == null) {
+            log.info("Matching TCP/UDP fields is not configured, " +
+                    "using current value of {}", matchTcpUdpPorts);
+        } else {
+            matchTcpUdpPorts = matchTcpUdpPortsEnabled;
+            log.info("Configured. Matching TCP/UDP fields is {}",
+                    matchTcpUdpPorts ? "enabled" : "disabled");
+        }
+
+        Boolean matchIcmpFieldsEnabled =
+                Tools.isPropertyEnabled(properties, "matchIcmpFields");
+        if (matchIcmpFieldsEnabled == null) {
+            log.info("Matching ICMP fields is not configured, " +
+                    "using current value of {}", matchIcmpFields);
+        } else {
+            matchIcmpFields = matchIcmpFieldsEnabled;
+            log.info("Configured. Matching ICMP fields is {}",
+                    matchIcmpFields ? "enabled" : "disabled");
+        }
+
+        // Templates are recompiled with the fields in force.
+        templates.invalidateAll();
+    }
+
+    @Override
+    public SelectorTemplate compile(DefaultTrafficProfile trafficProfile) {
+        return templates.asMap().computeIfAbsent(trafficProfile,
+                profile -> SelectorTemplate.compile(profile, matchIpv4Address,
+                        matchTcpUdpPorts, matchIcmpFields));
+    }
+
+    @Override
+    public long templateCount() {
+        return templates.size();
+    }
+
+    /**
+     * Compiles the template of a policy when its installation is requested.
+     */
+    private class InternalPolicyListener implements PolicyListener {
+        @Override
+        public void event(PolicyEvent event) {
+            if (event.type() == PolicyEvent.Type.INSTALL_REQ
+                    && event.subject() instanceof DefaultPolicy) {
+                DefaultTrafficProfile trafficProfile =
+                        ((DefaultPolicy) event.subject()).getTrafficProfile();
+                if (trafficProfile != null) {
+                    compile(trafficProfile);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.onosproject.net.flow.criteria.IPCriterion;
+import org.onosproject.net.flow.criteria.IPDscpCriterion;
+import org.onosproject.net.flow.criteria.IPProtocolCriterion;
+import org.onosproject.net.flow.criteria.TcpPortCriterion;
+import org.onosproject.net.flow.criteria.UdpPortCriterion;
+import org.onosproject.net.flow.criteria.VlanIdCriterion;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Match criteria of a traffic profile compiled into value and mask arrays,
+ * evaluated directly against the header fields of a packet.
+ * <p>
+ * Supported criteria are the IP protocol, the IP DSCP, the VLAN ID, IPv4
+ * source and destination prefixes and TCP/UDP source and destination
+ * ports, optionally masked to match a range of ports.
+ */
+public final class HeaderCriteria {
+
+    /**
+     * Criteria matching every packet.
+     */
+    public static final HeaderCriteria NONE = new HeaderCriteria(new int[0], new int[0], new int[0]);
+
+    private static final int IP_PROTO = 0;
+    private static final int IP_DSCP = 1;
+    private static final int VLAN_VID = 2;
+    private static final int IPV4_SRC = 3;
+    private static final int IPV4_DST = 4;
+    private static final int TCP_SRC = 5;
+    private static final int TCP_DST = 6;
+    private static final int UDP_SRC = 7;
+    private static final int UDP_DST = 8;
+
+    private static final long NO_VALUE = -1;
+    private static final int PORT_MASK = 0xffff;
+    private static final int DSCP_MASK = 0x3f;
+    private static final int VID_MASK = 0xfff;
+    private static final int PROTO_MASK = 0xff;
+
+    private final int[] fields;
+    private final int[] values;
+    private final int[] masks;
+
+    private HeaderCriteria(int[] fields, int[] values, int[] masks) {
+        this.fields = fields;
+        this.values = values;
+        this.masks = masks;
+    }
+
+    /**
+     * Compiles a set of criteria.
+     *
+     * @param criteria criteria, may be null
+     * @return compiled criteria
+     * @throws IllegalArgumentException if a criterion is not supported
+     */
+    public static HeaderCriteria compile(Set<Criterion> criteria) {
+        if (criteria == null || criteria.isEmpty()) {
+            return NONE;
+        }
+        int[] fields = new int[criteria.size()];
+        int[] values = new int[criteria.size()];
+        int[] masks = new int[criteria.size()];
+        int n = 0;
+        for (Criterion criterion : criteria) {
+            int field;
+            int value;
+            int mask;
+            switch (criterion.type()) {
+                case ETH_TYPE:
+                    // Only IPv4 packets are classified.
+                    continue;
+                case IP_PROTO:
+                    field = IP_PROTO;
+                    value = ((IPProtocolCriterion) criterion).protocol();
+                    mask = PROTO_MASK;
+                    break;
+                case IP_DSCP:
+                    field = IP_DSCP;
+                    value = ((IPDscpCriterion) criterion).ipDscp();
+                    mask = DSCP_MASK;
+                    break;
+                case VLAN_VID:
+                    field = VLAN_VID;
+                    value = ((VlanIdCriterion) criterion).vlanId().toShort();
+                    mask = VID_MASK;
+                    break;
+                case IPV4_SRC:
+                case IPV4_DST:
+                    IPCriterion ipCriterion = (IPCriterion) criterion;
+                    field = criterion.type() == Criterion.Type.IPV4_SRC ? IPV4_SRC : IPV4_DST;
+                    value = ipCriterion.ip().address().getIp4Address().toInt();
+                    mask = prefixMask(ipCriterion.ip().prefixLength());
+                    break;
+                case TCP_SRC:
+                case TCP_SRC_MASKED:
+                case TCP_DST:
+                case TCP_DST_MASKED:
+                    TcpPortCriterion tcpCriterion = (TcpPortCriterion) criterion;
+                    field = criterion.type() == Criterion.Type.TCP_SRC
+                            || criterion.type() == Criterion.Type.TCP_SRC_MASKED ? TCP_SRC : TCP_DST;
+                    value = tcpCriterion.tcpPort().toInt();
+                    mask = tcpCriterion.mask() == null ? PORT_MASK : tcpCriterion.mask().toInt();
+                    break;
+                case UDP_SRC:
+                case UDP_SRC_MASKED:
+                case UDP_DST:
+                case UDP_DST_MASKED:
+                    UdpPortCriterion udpCriterion = (UdpPortCriterion) criterion;
+                    field = criterion.type() == Criterion.Type.UDP_SRC
+                            || criterion.type() == Criterion.Type.UDP_SRC_MASKED ? UDP_SRC : UDP_DST;
+                    value = udpCriterion.udpPort().toInt();
+                    mask = udpCriterion.mask() == null ? PORT_MASK : udpCriterion.mask().toInt();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported match criterion " + criterion);
+            }
+            fields[n] = field;
+            values[n] = value & mask;
+            masks[n] = mask;
+            n++;
+        }
+        if (n == 0) {
+            return NONE;
+        }
+        return new HeaderCriteria(Arrays.copyOf(fields, n), Arrays.copyOf(values, n),
+                Arrays.copyOf(masks, n));
+    }
+
+    private static int prefixMask(int prefixLength) {
+        return prefixLength == 0 ? 0 : -1 << (Integer.SIZE - prefixLength);
+    }
+
+    /**
+     * Evaluates whether there is no criterion.
+     *
+     * @return true if every packet matches, otherwise false
+     */
+    public boolean isEmpty() {
+        return fields.length == 0;
+    }
+
+    /**
+     * Returns the IP protocol required by the criteria.
+     *
+     * @return IP protocol, or -1 if any protocol matches
+     */
+    public int ipProtocol() {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == IP_PROTO) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evaluates whether the criteria admit the traffic between two IPv4
+     * addresses.
+     *
+     * @param srcAddress source address as an int
+     * @param dstAddress destination address as an int
+     * @return true if no address criterion excludes the addresses, otherwise false
+     */
+    public boolean admitsAddresses(int srcAddress, int dstAddress) {
+        return admits(IPV4_SRC, srcAddress) && admits(IPV4_DST, dstAddress);
+    }
+
+    /**
+     * Evaluates whether the criteria admit a TCP or UDP port.
+     *
+     * @param tcp    true for a TCP port, false for a UDP port
+     * @param source true for the source port, false for the destination port
+     * @param port   port number
+     * @return true if no port criterion excludes the port, otherwise false
+     */
+    public boolean admitsPort(boolean tcp, boolean source, int port) {
+        int field = tcp ? (source ? TCP_SRC : TCP_DST) : (source ? UDP_SRC : UDP_DST);
+        return admits(field, port);
+    }
+
+    private boolean admits(int field, int value) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == field && (value & masks[i]) != values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the criteria against the header fields of a packet.
+     *
+     * @param ethPkt Ethernet packet
+     * @return true if the packet matches every criterion, otherwise false
+     */
+    public boolean matches(Ethernet ethPkt) {
+        if (fields.length == 0) {
+            return true;
+        }
+        IPv4 ipv4Packet = ethPkt.getEtherType() == Ethernet.TYPE_IPV4 ?
+                (IPv4) ethPkt.getPayload() : null;
+        for (int i = 0; i < fields.length; i++) {
+            long value = field(fields[i], ethPkt, ipv4Packet);
+            if (value == NO_VALUE || ((int) value & masks[i]) != values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts a header field of a packet.
+     *
+     * @return field value, or NO_VALUE if the packet does not carry it
+     */
+    private static long field(int field, Ethernet ethPkt, IPv4 ipv4Packet) {
+        if (field == VLAN_VID) {
+            short vlanId = ethPkt.getVlanID();
+            return vlanId == Ethernet.VLAN_UNTAGGED ? NO_VALUE : vlanId & VID_MASK;
+        }
+        if (ipv4Packet == null) {
+            return NO_VALUE;
+        }
+        switch (field) {
+            case IP_PROTO:
+                return ipv4Packet.getProtocol() & PROTO_MASK;
+            case IP_DSCP:
+                return ipv4Packet.getDscp() & DSCP_MASK;
+            case IPV4_SRC:
+                return ipv4Packet.getSourceAddress() & 0xffffffffL;
+            case IPV4_DST:
+                return ipv4Packet.getDestinationAddress() & 0xffffffffL;
+            case TCP_SRC:
+            case TCP_DST:
+                // The payload of a non-first fragment is raw data.
+                if (!(ipv4Packet.getPayload() instanceof TCP)) {
+                    return NO_VALUE;
+                }
+                TCP tcpPacket = (TCP) ipv4Packet.getPayload();
+                return field == TCP_SRC ? tcpPacket.getSourcePort() : tcpPacket.getDestinationPort();
+            case UDP_SRC:
+            case UDP_DST:
+                if (!(ipv4Packet.getPayload() instanceof UDP)) {
+                    return NO_VALUE;
+                }
+                UDP udpPacket = (UDP) ipv4Packet.getPayload();
+                return field == UDP_SRC ? udpPacket.getSourcePort() : udpPacket.getDestinationPort();
+            default:
+                return NO_VALUE;
+        }
+    }
+}
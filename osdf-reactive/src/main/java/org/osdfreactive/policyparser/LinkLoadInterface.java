@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.Link;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the load of the links of the network, refreshed in the
+ * background so that path selection never waits for statistics.
+ */
+public interface LinkLoadInterface {
+
+    /**
+     * Returns the load of a link in the last snapshot.
+     *
+     * @param link a link
+     * @return load in bytes per second, 0 if unknown
+     */
+    long getLoad(Link link);
+
+    /**
+     * Returns the load of every link in the last snapshot.
+     *
+     * @return map of link source connect point to load in bytes per second
+     */
+    Map<ConnectPoint, Long> getLoads();
+
+    /**
+     * Returns the time the last snapshot was taken.
+     *
+     * @return snapshot time in milliseconds since the epoch, 0 if none
+     */
+    long getSnapshotTime();
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Immutable all-pairs next-hop table of a set of devices: for every
+ * destination device, the first link of a shortest path from every other
+ * device. Paths are hop-count shortest paths restricted to links between
+ * devices of the set.
+ */
+public final class NextHopTable {
+
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private final Map<DeviceId, Map<DeviceId, Link>> nextHops;
+
+    private NextHopTable(Map<DeviceId, Map<DeviceId, Link>> nextHops) {
+        this.nextHops = nextHops;
+    }
+
+    /**
+     * Builds the next-hop table of a set of devices, computing the
+     * destinations in parallel.
+     *
+     * @param devices devices of the table
+     * @param links   links of the topology
+     * @param pool    fork-join pool to compute on
+     * @return next-hop table
+     */
+    public static NextHopTable build(Set<DeviceId> devices, Collection<Link> links, ForkJoinPool pool) {
+        Map<DeviceId, List<Link>> incoming = Maps.newHashMap();
+        for (Link link : links) {
+            if (devices.contains(link.src().deviceId()) && devices.contains(link.dst().deviceId())) {
+                incoming.computeIfAbsent(link.dst().deviceId(), id -> new ArrayList<>()).add(link);
+            }
+        }
+
+        ConcurrentMap<DeviceId, Map<DeviceId, Link>> nextHops = Maps.newConcurrentMap();
+        pool.invoke(new DestinationTask(ImmutableList.copyOf(devices), incoming, nextHops));
+        return new NextHopTable(ImmutableMap.copyOf(nextHops));
+    }
+
+    /**
+     * Returns the links of the shortest path between two devices.
+     *
+     * @param src source device
+     * @param dst destination device
+     * @return links of the path, or null if there is no path
+     */
+    public List<Link> path(DeviceId src, DeviceId dst) {
+        Map<DeviceId, Link> toDst = nextHops.get(dst);
+        if (toDst == null || src.equals(dst)) {
+            return null;
+        }
+        List<Link> links = new ArrayList<>();
+        DeviceId current = src;
+        while (!current.equals(dst)) {
+            Link link = toDst.get(current);
+            if (link == null || links.size() >= nextHops.size()) {
+                return null;
+            }
+            links.add(link);
+            current = link.dst().deviceId();
+        }
+        return links;
+    }
+
+    /**
+     * Returns the number of destinations in the table.
+     *
+     * @return number of destinations
+     */
+    public int size() {
+        return nextHops.size();
+    }
+
+    /**
+     * Computes the next hops towards a range of destinations, splitting the
+     * range until it is small enough.
+     */
+    private static final class DestinationTask extends RecursiveAction {
+
+        private final List<DeviceId> destinations;
+        private final Map<DeviceId, List<Link>> incoming;
+        private final ConcurrentMap<DeviceId, Map<DeviceId, Link>> nextHops;
+
+        private DestinationTask(List<DeviceId> destinations,
+                                Map<DeviceId, List<Link>> incoming,
+                                ConcurrentMap<DeviceId, Map<DeviceId, Link>> nextHops) {
+            this.destinations = destinations;
+            this.incoming = incoming;
+            this.nextHops = nextHops;
+        }
+
+        @Override
+        protected void compute() {
+            if (destinations.size() <= SPLIT_THRESHOLD) {
+                destinations.forEach(dst -> nextHops.put(dst, nextHopsTo(dst)));
+                return;
+            }
+            int middle = destinations.size() / 2;
+            invokeAll(new DestinationTask(destinations.subList(0, middle), incoming, nextHops),
+                    new DestinationTask(destinations.subList(middle, destinations.size()),
+                            incoming, nextHops));
+        }
+
+        /**
+         * Runs a breadth first search backwards from a destination.
+         */
+        private Map<DeviceId, Link> nextHopsTo(DeviceId dst) {
+            Map<DeviceId, Link> toDst = Maps.newHashMap();
+            Deque<DeviceId> queue = new ArrayDeque<>();
+            queue.add(dst);
+            while (!queue.isEmpty()) {
+                DeviceId reached = queue.poll();
+                for (Link link : incoming.getOrDefault(reached, ImmutableList.of())) {
+                    DeviceId previous = link.src().deviceId();
+                    if (!previous.equals(dst) && !toDst.containsKey(previous)) {
+                        toDst.put(previous, link);
+                        queue.add(previous);
+                    }
+                }
+            }
+            return ImmutableMap.copyOf(toDst);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Path;
+import org.osdfreactive.policies.DefaultPolicy;
+
+import java.util.Set;
+
+/**
+ * Cache of the paths between devices and of the paths selected for policy
+ * constraints. Entries are dropped when a link or device they cross
+ * changes.
+ */
+public interface PathCacheInterface {
+
+    /**
+     * Returns the shortest paths between two devices.
+     *
+     * @param src source device
+     * @param dst destination device
+     * @return set of paths, empty if the devices are not connected
+     */
+    Set<Path> getPaths(DeviceId src, DeviceId dst);
+
+    /**
+     * Returns the path selected between two devices for a policy, according
+     * to its waypoints and path selection algorithm. ECMP, RANDOM and
+     * BEST_POSSIBLE_PATH selections are made per flow and are not cached,
+     * ON_DEMAND paths are computed from the current topology.
+     *
+     * @param src      source device
+     * @param dst      destination device
+     * @param policy   policy
+     * @param flowHash hash of the flow 5-tuple
+     * @return path, or null if the devices are not connected
+     */
+    Path getPath(DeviceId src, DeviceId dst, DefaultPolicy policy, int flowHash);
+
+    /**
+     * Drops every cached path.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return cache size
+     */
+    int size();
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return hit count
+     */
+    long hitCount();
+
+    /**
+     * Returns the number of lookups which had to compute paths.
+     *
+     * @return miss count
+     */
+    long missCount();
+
+    /**
+     * Returns the number of entries dropped because of topology changes.
+     *
+     * @return invalidation count
+     */
+    long invalidationCount();
+
+    /**
+     * Returns the average time spent computing paths on a miss.
+     *
+     * @return average recompute time in nanoseconds
+     */
+    long averageRecomputeNanos();
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.osdfreactive.policies.DefaultPolicy;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Key of a cached path: a pair of devices, and optionally the waypoints
+ * and path selection algorithm of the policy the path is selected for.
+ */
+public final class PathKey {
+
+    private final DeviceId src;
+    private final DeviceId dst;
+    private final List<ConnectPoint> waypoints;
+    private final PathSelectionAlgos algo;
+
+    private PathKey(DeviceId src, DeviceId dst,
+                    List<ConnectPoint> waypoints, PathSelectionAlgos algo) {
+        this.src = src;
+        this.dst = dst;
+        this.waypoints = waypoints;
+        this.algo = algo;
+    }
+
+    /**
+     * Returns the key of the paths between two devices.
+     *
+     * @param src source device
+     * @param dst destination device
+     * @return path key
+     */
+    public static PathKey of(DeviceId src, DeviceId dst) {
+        return new PathKey(src, dst, ImmutableList.of(), null);
+    }
+
+    /**
+     * Returns the key of the path selected between two devices for the
+     * constraints of a policy.
+     *
+     * @param src    source device
+     * @param dst    destination device
+     * @param policy policy
+     * @return path key
+     */
+    public static PathKey of(DeviceId src, DeviceId dst, DefaultPolicy policy) {
+        List<ConnectPoint> waypoints = policy.getDeviceList() == null ?
+                ImmutableList.of() : ImmutableList.copyOf(policy.getDeviceList());
+        return new PathKey(src, dst, waypoints, policy.getPathSelectionAlgo());
+    }
+
+    /**
+     * Returns the source device.
+     *
+     * @return source device
+     */
+    public DeviceId src() {
+        return src;
+    }
+
+    /**
+     * Returns the destination device.
+     *
+     * @return destination device
+     */
+    public DeviceId dst() {
+        return dst;
+    }
+
+    /**
+     * Returns the waypoints the path has to cross.
+     *
+     * @return waypoints
+     */
+    public List<ConnectPoint> waypoints() {
+        return waypoints;
+    }
+
+    /**
+     * Returns the path selection algorithm, or null for a device pair key.
+     *
+     * @return path selection algorithm
+     */
+    public PathSelectionAlgos algo() {
+        return algo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PathKey)) {
+            return false;
+        }
+        PathKey that = (PathKey) o;
+        return src.equals(that.src) && dst.equals(that.dst)
+                && algo == that.algo && waypoints.equals(that.waypoints);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(src, dst, waypoints, algo);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("src", src)
+                .add("dst", dst)
+                .add("waypoints", waypoints)
+                .add("algo", algo)
+                .toString();
+    }
+}
@@ -23,7 +23,8 @@ public enum PathSelectionAlgos {
     ECMP,
     ON_DEMAND,
     BEST_POSSIBLE_PATH,
-    RANDOM
+    RANDOM,
+    PRECOMPUTED
 
 
 }
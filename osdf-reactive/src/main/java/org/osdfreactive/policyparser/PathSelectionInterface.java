@@ -16,9 +16,12 @@
 
 package org.osdfreactive.policyparser;
 
+import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 import org.osdfreactive.policies.DefaultPolicy;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -31,10 +34,25 @@ public interface PathSelectionInterface {
                         DefaultPolicy policy);
 
 
+    Path pickEcmpPath(Set<Path> paths,
+                      DefaultPolicy policy,
+                      int flowHash);
+
+
+    Path pickLeastLoadedPath(Set<Path> paths,
+                             DefaultPolicy policy);
+
+
     Path getEndtoEndPath(Set<Path> endToEndPaths,
                          DefaultPolicy policy);
 
+    boolean crossesWaypoints(Path path,
+                             DefaultPolicy policy);
+
     PathSelectionAlgos getPathSelectionAlgo(String pathSelectionAlgo);
 
 
+    Map<List<Link>, Long> getPathFlowCounts();
+
+
 }
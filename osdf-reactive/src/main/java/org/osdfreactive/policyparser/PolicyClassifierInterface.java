@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onlab.packet.Ethernet;
+import org.onosproject.net.HostId;
+import org.osdfreactive.networkoperations.OperationsList;
+import org.osdfreactive.policies.DefaultPolicy;
+
+/**
+ * Multi-field packet classifier returning the policy a packet belongs to.
+ */
+public interface PolicyClassifierInterface {
+
+    /**
+     * Returns the highest priority policy of an action matching a packet.
+     *
+     * @param action      abstract action
+     * @param srcRegionId region ID of the source address of the packet
+     * @param dstRegionId region ID of the destination address of the packet
+     * @param ethPkt      Ethernet packet
+     * @param srcHost     source host of the packet
+     * @param dstHost     destination host of the packet, may be null if
+     *                    it is not known
+     * @return matching policy, or null if there is none
+     */
+    DefaultPolicy classify(OperationsList action, String srcRegionId, String dstRegionId,
+                           Ethernet ethPkt, HostId srcHost, HostId dstHost);
+
+    /**
+     * Evaluates whether no policy of an action is classified.
+     *
+     * @param action abstract action
+     * @return true if no packet can match a policy of the action
+     */
+    boolean isEmpty(OperationsList action);
+
+    /**
+     * Evaluates whether a policy of an action naming its hosts is
+     * classified, i.e. whether classifying a packet may need its hosts.
+     *
+     * @param action abstract action
+     * @return true if a classified policy of the action has hosts
+     */
+    boolean hasHostPolicies(OperationsList action);
+
+    /**
+     * Returns the number of classified policies.
+     *
+     * @return policy count
+     */
+    int size();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Path;
+
+/**
+ * Precomputed all-pairs shortest paths, kept per region as next-hop tables
+ * and rebuilt when the topology of a region changes.
+ */
+public interface PrecomputedPathInterface {
+
+    /**
+     * Returns the precomputed shortest path between two devices of the same
+     * region. The table of a region is built in the background on its first
+     * use, so no path is returned until it is ready.
+     *
+     * @param src source device
+     * @param dst destination device
+     * @return path, or null if the devices are not in the same region, are
+     * not connected or the table of the region is not ready
+     */
+    Path getPath(DeviceId src, DeviceId dst);
+
+    /**
+     * Returns the number of regions which have a next-hop table.
+     *
+     * @return number of tables
+     */
+    int tableCount();
+
+    /**
+     * Returns the number of times a next-hop table has been built.
+     *
+     * @return build count
+     */
+    long buildCount();
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+
+/**
+ * Selector compiler interface.
+ */
+public interface SelectorCompilerInterface {
+
+    /**
+     * Returns the match template of a traffic profile, compiling it the
+     * first time the profile is seen.
+     *
+     * @param trafficProfile traffic profile
+     * @return selector template
+     */
+    SelectorTemplate compile(DefaultTrafficProfile trafficProfile);
+
+    /**
+     * Returns the number of compiled templates.
+     *
+     * @return template count
+     */
+    long templateCount();
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.ICMP;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.TCP;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.UDP;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.osdfreactive.appsinfo.ApplicationTypes;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+
+import java.util.Set;
+
+/**
+ * Match template compiled from a traffic profile.
+ * <p>
+ * Everything which depends on the profile only, i.e. the IP protocol, the
+ * application port, the match criteria of the profile and the fields to
+ * match, is resolved when the template is compiled. Building the selector
+ * of a packet then only evaluates the compiled checks against its header
+ * fields and copies them.
+ */
+public final class SelectorTemplate {
+
+    /**
+     * Application port of profiles matching any port.
+     */
+    public static final int ANY_PORT = -1;
+
+    /**
+     * IP protocol of profiles matching any protocol.
+     */
+    public static final int ANY_PROTOCOL = -1;
+
+    private final boolean matchable;
+    private final int ipProtocol;
+    private final int appPort;
+    private final HeaderCriteria headerCriteria;
+    private final Set<Criterion> criteria;
+    private final boolean matchAddresses;
+    private final boolean matchPorts;
+    private final boolean matchIcmpFields;
+
+    private SelectorTemplate(boolean matchable, int ipProtocol, int appPort,
+                             HeaderCriteria headerCriteria, Set<Criterion> criteria,
+                             boolean matchAddresses, boolean matchPorts,
+                             boolean matchIcmpFields) {
+        this.matchable = matchable;
+        this.ipProtocol = ipProtocol;
+        this.appPort = appPort;
+        this.headerCriteria = headerCriteria;
+        this.criteria = criteria;
+        this.matchAddresses = matchAddresses;
+        this.matchPorts = matchPorts;
+        this.matchIcmpFields = matchIcmpFields;
+    }
+
+    /**
+     * Compiles the template of a traffic profile.
+     * <p>
+     * The application type gives the protocol and the application port, the
+     * criteria set of the profile restricts them further. A profile with
+     * criteria and no application type matches the traffic selected by its
+     * criteria only.
+     *
+     * @param trafficProfile  traffic profile
+     * @param matchAddresses  true to match the IPv4 addresses
+     * @param matchPorts      true to match the TCP/UDP ports
+     * @param matchIcmpFields true to match the ICMP type and code
+     * @return selector template; a profile with neither an IPv4 application
+     * nor criteria compiles to a template matching no packet
+     * @throws IllegalArgumentException if a criterion is not supported
+     */
+    public static SelectorTemplate compile(DefaultTrafficProfile trafficProfile,
+                                           boolean matchAddresses,
+                                           boolean matchPorts,
+                                           boolean matchIcmpFields) {
+        HeaderCriteria headerCriteria = HeaderCriteria.compile(trafficProfile.getCriteriaSet());
+        ApplicationTypes appType = trafficProfile.getApplicationType();
+
+        boolean matchable = true;
+        int ipProtocol = headerCriteria.ipProtocol();
+        int appPort = ANY_PORT;
+        if (appType != null) {
+            int appProtocol = ipProtocol(appType);
+            if (appProtocol == ANY_PROTOCOL
+                    || ipProtocol != ANY_PROTOCOL && ipProtocol != appProtocol) {
+                matchable = false;
+            }
+            ipProtocol = appProtocol;
+            if (appProtocol != IPv4.PROTOCOL_ICMP) {
+                appPort = appType.getApplicationPort().getApplicationPort();
+            }
+        } else if (headerCriteria.isEmpty()) {
+            matchable = false;
+        }
+        return new SelectorTemplate(matchable, ipProtocol, appPort, headerCriteria,
+                trafficProfile.getCriteriaSet(), matchAddresses, matchPorts, matchIcmpFields);
+    }
+
+    private static int ipProtocol(ApplicationTypes appType) {
+        switch (appType.getTransportProtocol()) {
+            case TCPv4:
+                return IPv4.PROTOCOL_TCP;
+            case UDPv4:
+                return IPv4.PROTOCOL_UDP;
+            case ICMPv4:
+                return IPv4.PROTOCOL_ICMP;
+            default:
+                return ANY_PROTOCOL;
+        }
+    }
+
+    /**
+     * Returns the IP protocol matched by the template.
+     *
+     * @return IP protocol, or ANY_PROTOCOL
+     */
+    public int ipProtocol() {
+        return ipProtocol;
+    }
+
+    /**
+     * Returns the application port matched by the template.
+     *
+     * @return application port, or ANY_PORT
+     */
+    public int appPort() {
+        return appPort;
+    }
+
+    /**
+     * Evaluates whether a packet belongs to the traffic of the template.
+     *
+     * @param ethPkt Ethernet packet
+     * @return true if the packet matches, otherwise false
+     */
+    public boolean matches(Ethernet ethPkt) {
+        if (!matchable || ethPkt.getEtherType() != Ethernet.TYPE_IPV4) {
+            return false;
+        }
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        int protocol = ipv4Packet.getProtocol() & 0xff;
+        if (ipProtocol != ANY_PROTOCOL && protocol != ipProtocol) {
+            return false;
+        }
+        if (appPort != ANY_PORT && matchPorts) {
+            // The application port of a non-first fragment is unknown, its
+            // payload is raw data.
+            IPacket payload = ipv4Packet.getPayload();
+            if (payload instanceof TCP) {
+                TCP tcpPacket = (TCP) payload;
+                if (!isAppPort(tcpPacket.getSourcePort(), tcpPacket.getDestinationPort())) {
+                    return false;
+                }
+            } else if (payload instanceof UDP) {
+                UDP udpPacket = (UDP) payload;
+                if (!isAppPort(udpPacket.getSourcePort(), udpPacket.getDestinationPort())) {
+                    return false;
+                }
+            } else if (protocol == IPv4.PROTOCOL_TCP || protocol == IPv4.PROTOCOL_UDP) {
+                return false;
+            }
+        }
+        return headerCriteria.matches(ethPkt);
+    }
+
+    /**
+     * Builds the selector of a packet.
+     * <p>
+     * The criteria of the profile are matched by the selector as well,
+     * unless the exact header field of the packet is matched instead.
+     *
+     * @param ethPkt    Ethernet packet
+     * @param matchMacs true to match the MAC addresses as well
+     * @return traffic selector builder, or null if the packet does not
+     * match the template
+     */
+    public TrafficSelector.Builder selector(Ethernet ethPkt, boolean matchMacs) {
+        if (!matches(ethPkt)) {
+            return null;
+        }
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        byte protocol = ipv4Packet.getProtocol();
+        IPacket payload = ipv4Packet.getPayload();
+
+        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
+        if (criteria != null) {
+            for (Criterion criterion : criteria) {
+                if (!matchPorts || !isPortCriterion(criterion)) {
+                    selectorBuilder.add(criterion);
+                }
+            }
+        }
+        selectorBuilder.matchEthType(Ethernet.TYPE_IPV4);
+        if (matchAddresses) {
+            selectorBuilder.matchIPSrc(Ip4Prefix.valueOf(ipv4Packet.getSourceAddress(),
+                    Ip4Prefix.MAX_MASK_LENGTH))
+                    .matchIPDst(Ip4Prefix.valueOf(ipv4Packet.getDestinationAddress(),
+                            Ip4Prefix.MAX_MASK_LENGTH));
+            if (matchMacs) {
+                selectorBuilder.matchEthSrc(ethPkt.getSourceMAC())
+                        .matchEthDst(ethPkt.getDestinationMAC());
+            }
+        }
+        selectorBuilder.matchIPProtocol(protocol);
+
+        // A non-first fragment has no transport header to match.
+        switch (protocol) {
+            case IPv4.PROTOCOL_TCP:
+                if (matchPorts && payload instanceof TCP) {
+                    TCP tcpPacket = (TCP) payload;
+                    selectorBuilder.matchTcpSrc(TpPort.tpPort(tcpPacket.getSourcePort()))
+                            .matchTcpDst(TpPort.tpPort(tcpPacket.getDestinationPort()));
+                }
+                break;
+            case IPv4.PROTOCOL_UDP:
+                if (matchPorts && payload instanceof UDP) {
+                    UDP udpPacket = (UDP) payload;
+                    selectorBuilder.matchUdpSrc(TpPort.tpPort(udpPacket.getSourcePort()))
+                            .matchUdpDst(TpPort.tpPort(udpPacket.getDestinationPort()));
+                }
+                break;
+            case IPv4.PROTOCOL_ICMP:
+                if (matchIcmpFields && payload instanceof ICMP) {
+                    ICMP icmpPacket = (ICMP) payload;
+                    selectorBuilder.matchIcmpType(icmpPacket.getIcmpType())
+                            .matchIcmpCode(icmpPacket.getIcmpCode());
+                }
+                break;
+            default:
+                break;
+        }
+        return selectorBuilder;
+    }
+
+    /**
+     * Builds the aggregate selector of a packet, shared by the flows of a
+     * policy between the same addresses.
+     * <p>
+     * The client port, the MAC addresses and the ICMP type and code are not
+     * matched, provided the template matches the IPv4 addresses; otherwise
+     * the selector of the packet is built.
+     *
+     * @param ethPkt    Ethernet packet
+     * @param srcPrefix prefix matched instead of the source address, may be
+     *                  null to match the source address
+     * @return traffic selector builder, or null if the packet does not
+     * match the template
+     */
+    public TrafficSelector.Builder aggregateSelector(Ethernet ethPkt, IpPrefix srcPrefix) {
+        if (!matchAddresses) {
+            return selector(ethPkt, false);
+        }
+        if (!matches(ethPkt)) {
+            return null;
+        }
+        IPv4 ipv4Packet = (IPv4) ethPkt.getPayload();
+        byte protocol = ipv4Packet.getProtocol();
+        IPacket payload = ipv4Packet.getPayload();
+
+        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
+        if (criteria != null) {
+            for (Criterion criterion : criteria) {
+                if (!matchPorts || !isPortCriterion(criterion)) {
+                    selectorBuilder.add(criterion);
+                }
+            }
+        }
+        selectorBuilder.matchEthType(Ethernet.TYPE_IPV4)
+                .matchIPSrc(srcPrefix != null ? srcPrefix :
+                        Ip4Prefix.valueOf(ipv4Packet.getSourceAddress(), Ip4Prefix.MAX_MASK_LENGTH))
+                .matchIPDst(Ip4Prefix.valueOf(ipv4Packet.getDestinationAddress(),
+                        Ip4Prefix.MAX_MASK_LENGTH))
+                .matchIPProtocol(protocol);
+        if (!matchPorts) {
+            return selectorBuilder;
+        }
+
+        // A non-first fragment has no transport header to match.
+        if (payload instanceof TCP) {
+            TCP tcpPacket = (TCP) payload;
+            int tcpSrc = tcpPacket.getSourcePort();
+            int tcpDst = tcpPacket.getDestinationPort();
+            boolean tcpAppPort = isAppPort(tcpSrc, tcpDst);
+            if (!tcpAppPort || tcpSrc == appPort) {
+                selectorBuilder.matchTcpSrc(TpPort.tpPort(tcpSrc));
+            }
+            if (!tcpAppPort || tcpDst == appPort) {
+                selectorBuilder.matchTcpDst(TpPort.tpPort(tcpDst));
+            }
+        } else if (payload instanceof UDP) {
+            UDP udpPacket = (UDP) payload;
+            int udpSrc = udpPacket.getSourcePort();
+            int udpDst = udpPacket.getDestinationPort();
+            boolean udpAppPort = isAppPort(udpSrc, udpDst);
+            if (!udpAppPort || udpSrc == appPort) {
+                selectorBuilder.matchUdpSrc(TpPort.tpPort(udpSrc));
+            }
+            if (!udpAppPort || udpDst == appPort) {
+                selectorBuilder.matchUdpDst(TpPort.tpPort(udpDst));
+            }
+        }
+        return selectorBuilder;
+    }
+
+    /**
+     * Evaluates whether the traffic of the template can be selected by flow
+     * rules installed ahead of it; port criteria can not be matched unless
+     * the template also gives their transport protocol.
+     *
+     * @return true if host selectors can be built, otherwise false
+     */
+    public boolean isExpressible() {
+        if (!matchable) {
+            return false;
+        }
+        if (ipProtocol != ANY_PROTOCOL || criteria == null) {
+            return true;
+        }
+        for (Criterion criterion : criteria) {
+            if (isPortCriterion(criterion)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the selector of one direction of the traffic of the template
+     * between two hosts, for rules installed ahead of the traffic.
+     * <p>
+     * The application port is matched as the destination port of the
+     * traffic sent to it and as the source port of the replies. The
+     * criteria of the profile are matched as well, the host addresses and
+     * the application port taking the place of the criteria on the same
+     * fields.
+     *
+     * @param srcIp source host address
+     * @param dstIp destination host address
+     * @param reply true for the traffic sent from the application port
+     * @return traffic selector builder, or null if the criteria exclude
+     * the traffic in this direction
+     */
+    public TrafficSelector.Builder hostSelector(Ip4Address srcIp, Ip4Address dstIp, boolean reply) {
+        if (!headerCriteria.admitsAddresses(srcIp.toInt(), dstIp.toInt())) {
+            return null;
+        }
+        TrafficSelector.Builder selectorBuilder = DefaultTrafficSelector.builder();
+        Criterion.Type appPortType = null;
+        if (appPort != ANY_PORT) {
+            boolean tcp = ipProtocol == IPv4.PROTOCOL_TCP;
+            if (!headerCriteria.admitsPort(tcp, reply, appPort)) {
+                return null;
+            }
+            if (tcp) {
+                appPortType = reply ? Criterion.Type.TCP_SRC : Criterion.Type.TCP_DST;
+            } else {
+                appPortType = reply ? Criterion.Type.UDP_SRC : Criterion.Type.UDP_DST;
+            }
+        }
+        if (criteria != null) {
+            for (Criterion criterion : criteria) {
+                if (!isAddressCriterion(criterion) && portType(criterion) != appPortType) {
+                    selectorBuilder.add(criterion);
+                }
+            }
+        }
+        selectorBuilder.matchEthType(Ethernet.TYPE_IPV4)
+                .matchIPSrc(srcIp.toIpPrefix())
+                .matchIPDst(dstIp.toIpPrefix());
+        if (ipProtocol != ANY_PROTOCOL) {
+            selectorBuilder.matchIPProtocol((byte) ipProtocol);
+        }
+        if (appPortType != null) {
+            TpPort port = TpPort.tpPort(appPort);
+            switch (appPortType) {
+                case TCP_SRC:
+                    selectorBuilder.matchTcpSrc(port);
+                    break;
+                case TCP_DST:
+                    selectorBuilder.matchTcpDst(port);
+                    break;
+                case UDP_SRC:
+                    selectorBuilder.matchUdpSrc(port);
+                    break;
+                default:
+                    selectorBuilder.matchUdpDst(port);
+                    break;
+            }
+        }
+        return selectorBuilder;
+    }
+
+    private boolean isAppPort(int srcPort, int dstPort) {
+        return srcPort == appPort || dstPort == appPort;
+    }
+
+    private static boolean isAddressCriterion(Criterion criterion) {
+        return criterion.type() == Criterion.Type.IPV4_SRC
+                || criterion.type() == Criterion.Type.IPV4_DST;
+    }
+
+    /**
+     * Returns the unmasked type of a port criterion.
+     *
+     * @param criterion a criterion
+     * @return port criterion type, or null if the criterion is not on a port
+     */
+    private static Criterion.Type portType(Criterion criterion) {
+        switch (criterion.type()) {
+            case TCP_SRC:
+            case TCP_SRC_MASKED:
+                return Criterion.Type.TCP_SRC;
+            case TCP_DST:
+            case TCP_DST_MASKED:
+                return Criterion.Type.TCP_DST;
+            case UDP_SRC:
+            case UDP_SRC_MASKED:
+                return Criterion.Type.UDP_SRC;
+            case UDP_DST:
+            case UDP_DST_MASKED:
+                return Criterion.Type.UDP_DST;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isPortCriterion(Criterion criterion) {
+        return portType(criterion) != null;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policystorage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.FlowId;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the flow rules installed for the current policies.
+ * <p>
+ * A rule is registered once under its flow ID and indexed by the policy
+ * it has been installed for and by its device, so that a rule is removed
+ * in constant time when it leaves its device table and the rules of a
+ * policy or a device are found without a scan. A rule installed again
+ * for another policy moves to that policy.
+ * <p>
+ * A rule is registered and the rules of a policy are unregistered under
+ * the lock of the policy entry, so that a rule registered while its policy
+ * is removed is either removed with it or registered after it, in a new
+ * entry, never left out of both.
+ */
+public class FlowRuleRegistry {
+
+    private final ConcurrentMap<FlowId, Registration> rules = Maps.newConcurrentMap();
+    private final ConcurrentMap<Integer, Set<FlowId>> rulesByPolicy = Maps.newConcurrentMap();
+    private final ConcurrentMap<DeviceId, Set<FlowId>> rulesByDevice = Maps.newConcurrentMap();
+
+    /**
+     * Registers a flow rule for a policy.
+     *
+     * @param policyId ID of the policy the rule is installed for
+     * @param flowRule flow rule
+     * @return true if the rule was not registered yet, otherwise false
+     */
+    public boolean add(int policyId, DefaultFlowRule flowRule) {
+        FlowId flowId = flowRule.id();
+        Registration registration = new Registration(policyId, flowRule);
+        Registration[] previous = new Registration[1];
+        rulesByPolicy.compute(policyId, (k, flowIds) -> {
+            Set<FlowId> updated = flowIds == null ? ConcurrentHashMap.newKeySet() : flowIds;
+            previous[0] = rules.put(flowId, registration);
+            updated.add(flowId);
+            index(rulesByDevice, flowRule.deviceId(), flowId);
+            return updated;
+        });
+        // The entry of another policy can not be updated under the lock of
+        // this one; a removal of that policy skips the rule meanwhile.
+        if (previous[0] != null && previous[0].policyId != policyId) {
+            unindex(rulesByPolicy, previous[0].policyId, flowId);
+        }
+        return previous[0] == null;
+    }
+
+    /**
+     * Unregisters a flow rule.
+     *
+     * @param flowId flow ID of the rule
+     * @return the unregistered rule, or null if it was not registered
+     */
+    public DefaultFlowRule remove(FlowId flowId) {
+        Registration registration = rules.remove(flowId);
+        if (registration == null) {
+            return null;
+        }
+        unindex(rulesByPolicy, registration.policyId, flowId);
+        unindex(rulesByDevice, registration.flowRule.deviceId(), flowId);
+        return registration.flowRule;
+    }
+
+    /**
+     * Unregisters the flow rules of a policy.
+     *
+     * @param policyId policy ID
+     * @return the unregistered rules
+     */
+    public Collection<DefaultFlowRule> removePolicy(int policyId) {
+        ImmutableList.Builder<DefaultFlowRule> removed = ImmutableList.builder();
+        rulesByPolicy.computeIfPresent(policyId, (k, flowIds) -> {
+            for (FlowId flowId : flowIds) {
+                Registration registration = rules.get(flowId);
+                // The rule may have moved to another policy meanwhile.
+                if (registration != null && registration.policyId == policyId
+                        && rules.remove(flowId, registration)) {
+                    unindex(rulesByDevice, registration.flowRule.deviceId(), flowId);
+                    removed.add(registration.flowRule);
+                }
+            }
+            return null;
+        });
+        return removed.build();
+    }
+
+    /**
+     * Returns the flow rules registered for a policy.
+     *
+     * @param policyId policy ID
+     * @return flow rules
+     */
+    public Collection<DefaultFlowRule> getRules(int policyId) {
+        return rulesOf(rulesByPolicy.get(policyId));
+    }
+
+    /**
+     * Returns the flow rules registered on a device.
+     *
+     * @param deviceId device ID
+     * @return flow rules
+     */
+    public Collection<DefaultFlowRule> getRules(DeviceId deviceId) {
+        return rulesOf(rulesByDevice.get(deviceId));
+    }
+
+    /**
+     * Returns the number of flow rules registered for a policy.
+     *
+     * @param policyId policy ID
+     * @return rule count
+     */
+    public int ruleCount(int policyId) {
+        Set<FlowId> flowIds = rulesByPolicy.get(policyId);
+        return flowIds == null ? 0 : flowIds.size();
+    }
+
+    /**
+     * Returns the number of registered flow rules.
+     *
+     * @return rule count
+     */
+    public int size() {
+        return rules.size();
+    }
+
+    private Collection<DefaultFlowRule> rulesOf(Set<FlowId> flowIds) {
+        if (flowIds == null) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<DefaultFlowRule> flowRules = ImmutableList.builder();
+        for (FlowId flowId : flowIds) {
+            Registration registration = rules.get(flowId);
+            if (registration != null) {
+                flowRules.add(registration.flowRule);
+            }
+        }
+        return flowRules.build();
+    }
+
+    // Sets are created and dropped under the lock of their map entry, so an
+    // ID is never added to a set which has just been dropped.
+    private static <K> void index(ConcurrentMap<K, Set<FlowId>> index, K key, FlowId flowId) {
+        index.compute(key, (k, flowIds) -> {
+            Set<FlowId> updated = flowIds == null ? ConcurrentHashMap.newKeySet() : flowIds;
+            updated.add(flowId);
+            return updated;
+        });
+    }
+
+    private static <K> void unindex(ConcurrentMap<K, Set<FlowId>> index, K key, FlowId flowId) {
+        index.computeIfPresent(key, (k, flowIds) -> {
+            flowIds.remove(flowId);
+            return flowIds.isEmpty() ? null : flowIds;
+        });
+    }
+
+    /**
+     * Registered flow rule with the policy it has been installed for.
+     */
+    private static final class Registration {
+        private final int policyId;
+        private final DefaultFlowRule flowRule;
+
+        private Registration(int policyId, DefaultFlowRule flowRule) {
+            this.policyId = policyId;
+            this.flowRule = flowRule;
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.osdfreactive.policystorage;
 
-import com.google.common.collect.Multimap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -24,6 +23,7 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onosproject.event.AbstractListenerManager;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.osdfreactive.policies.DefaultPolicyId;
 import org.osdfreactive.policies.Policy;
@@ -88,6 +88,11 @@ public class PolicyManager extends
 
     }
 
+    @Override
+    public void updatePolicyState(Policy policy, PolicyState state) {
+        policyStore.updatePolicyState(policy, state);
+    }
+
     @Override
     public void removeCurrentPolicy(Policy policy) {
 
@@ -99,6 +104,11 @@ public class PolicyManager extends
         return policyStore.getPolicy(policyId);
     }
 
+    @Override
+    public Collection<Policy> getPoliciesByName(String policyName) {
+        return policyStore.getPoliciesByName(policyName);
+    }
+
     @Override
     public Map<DefaultPolicyId, Policy> getCurrentPolicyMap() {
         return policyStore.getCurrentPolicyMap();
@@ -112,8 +122,8 @@ public class PolicyManager extends
     }
 
     @Override
-    public Multimap<DefaultPolicyId, DefaultFlowRule> getFlowRulesList() {
-        return policyStore.getFlowRulesList();
+    public Collection<DefaultFlowRule> getFlowRulesForDevice(DeviceId deviceId) {
+        return policyStore.getFlowRulesForDevice(deviceId);
     }
 
     @Override
@@ -16,8 +16,8 @@
 
 package org.osdfreactive.policystorage;
 
-import com.google.common.collect.Multimap;
 import org.onosproject.event.ListenerService;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.osdfreactive.policies.DefaultPolicyId;
 import org.osdfreactive.policies.Policy;
@@ -40,15 +40,32 @@ public interface PolicyService extends ListenerService<PolicyEvent, PolicyListen
 
     void addFlowRule(Policy policy, DefaultFlowRule flowRule);
 
+    /**
+     * Updates the state of a current policy, notifying the change.
+     *
+     * @param policy policy
+     * @param state  new policy state
+     */
+    void updatePolicyState(Policy policy, PolicyState state);
+
     void removeCurrentPolicy(Policy policy);
 
     Policy getPolicy(String policyId);
 
+    /**
+     * Returns the current policies with a given name; policies of the same
+     * application and traffic profile share their name.
+     *
+     * @param policyName policy name
+     * @return policies, empty if there is none
+     */
+    Collection<Policy> getPoliciesByName(String policyName);
+
     Map<DefaultPolicyId, Policy> getCurrentPolicyMap();
 
     int getRulesCount(Policy policy);
 
-    Multimap<DefaultPolicyId, DefaultFlowRule> getFlowRulesList();
+    Collection<DefaultFlowRule> getFlowRulesForDevice(DeviceId deviceId);
 
 
     Collection<DefaultFlowRule> getFlowRulesForPolicy(Policy policy);
@@ -17,7 +17,7 @@
 package org.osdfreactive.policystorage;
 
 
-import com.google.common.collect.Multimap;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.onosproject.store.Store;
 import org.osdfreactive.policies.DefaultPolicyId;
@@ -40,15 +40,32 @@ public interface PolicyStore extends Store<PolicyEvent, PolicyStoreDelegate> {
 
     void addFlowRule(Policy policy, DefaultFlowRule flowRule);
 
+    /**
+     * Updates the state of a current policy, notifying the change.
+     *
+     * @param policy policy
+     * @param state  new policy state
+     */
+    void updatePolicyState(Policy policy, PolicyState state);
+
     void removeCurrentPolicy(Policy policy);
 
     Policy getPolicy(String policyId);
 
+    /**
+     * Returns the current policies with a given name; policies of the same
+     * application and traffic profile share their name.
+     *
+     * @param policyName policy name
+     * @return policies, empty if there is none
+     */
+    Collection<Policy> getPoliciesByName(String policyName);
+
     Map<DefaultPolicyId, Policy> getCurrentPolicyMap();
 
     int getRulesCount(Policy policy);
 
-    Multimap<DefaultPolicyId, DefaultFlowRule> getFlowRulesList();
+    Collection<DefaultFlowRule> getFlowRulesForDevice(DeviceId deviceId);
 
 
     Collection<DefaultFlowRule> getFlowRulesForPolicy(Policy policy);
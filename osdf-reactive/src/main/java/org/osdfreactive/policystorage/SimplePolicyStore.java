@@ -16,25 +16,31 @@
 
 package org.osdfreactive.policystorage;
 
-import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.DefaultFlowRule;
-import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.store.AbstractStore;
 import org.osdfreactive.policies.DefaultPolicyId;
 import org.osdfreactive.policies.Policy;
+import org.osdfreactive.policies.PolicyCookie;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -51,20 +57,32 @@ public class SimplePolicyStore
         implements PolicyStore {
 
 
-    private final Multimap<DefaultPolicyId, DefaultFlowRule> flowRuleList = ArrayListMultimap.create();
+    // Flow rules removed per batch when a policy is withdrawn.
+    private static final int WITHDRAW_BATCH_SIZE = 1000;
+
+    private final FlowRuleRegistry flowRules = new FlowRuleRegistry();
+    private final FlowRuleListener flowRuleListener = new InternalFlowRuleListener();
     private final Logger log = getLogger(getClass());
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleService flowRuleService;
     private Map<DefaultPolicyId, Policy> current = Maps.newConcurrentMap();
+    private final Map<Integer, Policy> currentById = Maps.newConcurrentMap();
+    // Current policies by name and ID; a name may be given to several
+    // policies, such as the intra and inter route policies of a profile.
+    private final ConcurrentMap<String, Map<Integer, Policy>> currentByName = Maps.newConcurrentMap();
+    // Withdrawn policies some of whose rules could not be removed, by ID.
+    private final Map<Integer, Policy> corrupt = Maps.newConcurrentMap();
 
     @Activate
     public void activate() {
+        flowRuleService.addListener(flowRuleListener);
         log.info("Started");
 
     }
 
     @Deactivate
     public void deactivate() {
+        flowRuleService.removeListener(flowRuleListener);
         log.info("Stopped");
     }
 
@@ -81,7 +99,8 @@ public class SimplePolicyStore
 
 
     /**
-     * Add a policy into the current list of policies.
+     * Add a policy into the current list of policies; a policy with the ID
+     * of a current policy replaces it.
      *
      * @param policy a policy
      */
@@ -89,14 +108,25 @@ public class SimplePolicyStore
     public void addCurrent(Policy policy) {
 
 
-        current.put((DefaultPolicyId) policy.getPolicyId(), policy);
+        Policy previous = current.put((DefaultPolicyId) policy.getPolicyId(), policy);
+        if (previous != null) {
+            removeName(previous);
+        }
+        currentById.put(policy.getPolicyId().getPolicyId(), policy);
+        String policyName = policy.getPolicyId().getPolicyName();
+        if (policyName != null) {
+            currentByName.computeIfAbsent(policyName, k -> Maps.newConcurrentMap())
+                    .put(policy.getPolicyId().getPolicyId(), policy);
+        }
 
         PolicyEvent.getEvent(policy).ifPresent(this::notifyDelegate);
 
     }
 
     /**
-     * Add a flow rule to the list of flow rules for a given policy.
+     * Add a flow rule to the flow rules of a given policy; a rule already
+     * registered is not added twice. A rule of a policy which is no longer
+     * current is removed from its device instead.
      *
      * @param policy   policy
      * @param flowRule flow rule
@@ -104,12 +134,45 @@ public class SimplePolicyStore
     @Override
     public void addFlowRule(Policy policy, DefaultFlowRule flowRule) {
 
-        flowRuleList.put((DefaultPolicyId) policy.getPolicyId(), flowRule);
+        flowRules.add(policy.getPolicyId().getPolicyId(), flowRule);
+        // The rule is registered before the policy is checked, so that a
+        // withdrawal either finds it or is seen here.
+        if (!current.containsKey(policy.getPolicyId())
+                && PolicyCookie.isOwnedBy(flowRule.id().value(), policy)) {
+            log.debug("Removing flow rule {} installed for withdrawn policy {}",
+                    flowRule.id(), policy.getPolicyId().getPolicyId());
+            flowRules.remove(flowRule.id());
+            flowRuleService.removeFlowRules(flowRule);
+        }
     }
 
 
     /**
-     * Remove a policy from list of current active polices.
+     * Update the state of a current policy; an event is notified only when
+     * the state changes.
+     *
+     * @param policy a policy
+     * @param state  new policy state
+     */
+    @Override
+    public void updatePolicyState(Policy policy, PolicyState state) {
+        Policy currentPolicy = current.get(policy.getPolicyId());
+        if (currentPolicy == null) {
+            return;
+        }
+        synchronized (currentPolicy) {
+            if (currentPolicy.getPolicyState() == state) {
+                return;
+            }
+            currentPolicy.setPolicyState(state);
+        }
+        PolicyEvent.getEvent(state, currentPolicy).ifPresent(this::notifyDelegate);
+    }
+
+    /**
+     * Remove a policy from list of current active polices. The policy is
+     * withdrawn asynchronously: it moves to WITHDRAW_REQ at once and to
+     * WITHDRAWN once its flow rules have been removed, in batches.
      *
      * @param policy a policy
      */
@@ -117,30 +180,125 @@ public class SimplePolicyStore
     public void removeCurrentPolicy(Policy policy) {
 
 
-        Collection<DefaultFlowRule> flowRules = flowRuleList.get((DefaultPolicyId) policy.getPolicyId());
-        for (FlowRule flowRule : flowRules) {
-            flowRuleService.removeFlowRules(flowRule);
+        // The policy stops matching packets before its rules are removed.
+        Policy removed = current.remove(policy.getPolicyId());
+        Policy withdrawn = removed == null ? policy : removed;
+        currentById.remove(policy.getPolicyId().getPolicyId());
+        removeName(withdrawn);
+        setState(withdrawn, PolicyState.WITHDRAW_REQ);
+
+        List<DefaultFlowRule> policyRules =
+                ImmutableList.copyOf(flowRules.removePolicy(policy.getPolicyId().getPolicyId()));
+        removeBatch(withdrawn, policyRules, 0, 0);
+    }
+
+    /**
+     * Submits the removal of a batch of the rules of a withdrawn policy; the
+     * next batch is submitted once the previous one has completed, and the
+     * policy is withdrawn once every batch has. The rules of a failed batch
+     * stay registered and the policy becomes CORRUPT instead, holding its
+     * ID until they have left their device tables.
+     *
+     * @param policy policy being withdrawn
+     * @param rules  flow rules of the policy
+     * @param from   index of the first rule of the batch
+     * @param failed number of rules whose removal failed so far
+     */
+    private void removeBatch(Policy policy, List<DefaultFlowRule> rules, int from, int failed) {
+        if (from >= rules.size()) {
+            int policyId = policy.getPolicyId().getPolicyId();
+            if (failed == 0) {
+                setState(policy, PolicyState.WITHDRAWN);
+                return;
+            }
+            log.warn("Failed to remove {} of {} flow rules of policy {}",
+                    failed, rules.size(), policyId);
+            corrupt.put(policyId, policy);
+            setState(policy, PolicyState.CORRUPT);
+            // The rules may have left their tables meanwhile.
+            purgeIfRemoved(policyId);
+            return;
         }
-        current.remove(policy.getPolicyId());
 
-        //PolicyEvent.getEvent(policy).ifPresent(this::notifyDelegate);
+        int to = Math.min(from + WITHDRAW_BATCH_SIZE, rules.size());
+        FlowRuleOperations.Builder operations = FlowRuleOperations.builder();
+        rules.subList(from, to).forEach(operations::remove);
+        flowRuleService.apply(operations.build(new FlowRuleOperationsContext() {
+            @Override
+            public void onSuccess(FlowRuleOperations ops) {
+                removeBatch(policy, rules, to, failed);
+            }
+
+            @Override
+            public void onError(FlowRuleOperations ops) {
+                int policyId = policy.getPolicyId().getPolicyId();
+                rules.subList(from, to).forEach(rule -> flowRules.add(policyId, rule));
+                removeBatch(policy, rules, to, failed + to - from);
+            }
+        }));
     }
 
     /**
-     * Return a policy based on a given policyId.
+     * Purges a corrupt policy once none of its rules is registered any more,
+     * releasing its ID.
      *
-     * @param policyId policy ID.
-     * @return a policy.
+     * @param policyId policy ID
+     */
+    private void purgeIfRemoved(int policyId) {
+        Policy policy = corrupt.get(policyId);
+        if (policy != null && flowRules.ruleCount(policyId) == 0
+                && corrupt.remove(policyId, policy)) {
+            setState(policy, PolicyState.PURGED);
+        }
+    }
+
+    private void removeName(Policy policy) {
+        String policyName = policy.getPolicyId().getPolicyName();
+        if (policyName != null) {
+            currentByName.computeIfPresent(policyName, (k, named) -> {
+                named.remove(policy.getPolicyId().getPolicyId(), policy);
+                return named.isEmpty() ? null : named;
+            });
+        }
+    }
+
+    private void setState(Policy policy, PolicyState state) {
+        synchronized (policy) {
+            policy.setPolicyState(state);
+        }
+        PolicyEvent.getEvent(state, policy).ifPresent(this::notifyDelegate);
+    }
+
+    /**
+     * Return a policy based on a given policyId, or on its name if the
+     * given policyId is not a number and a single policy has that name.
+     *
+     * @param policyId policy ID or policy name.
+     * @return a policy, or null if there is none.
      */
     @Override
     public Policy getPolicy(String policyId) {
 
-        for (Policy policy : current.values()) {
-            if (policy.getPolicyId().getPolicyId() == Integer.parseInt(policyId)) {
-                return policy;
-            }
+        int id;
+        try {
+            id = Integer.parseInt(policyId);
+        } catch (NumberFormatException e) {
+            Collection<Policy> named = getPoliciesByName(policyId);
+            return named.size() == 1 ? named.iterator().next() : null;
         }
-        return null;
+        return currentById.get(id);
+    }
+
+    /**
+     * Return the policies with a given name.
+     *
+     * @param policyName policy name.
+     * @return policies, empty if there is none.
+     */
+    @Override
+    public Collection<Policy> getPoliciesByName(String policyName) {
+        Map<Integer, Policy> named = policyName == null ? null : currentByName.get(policyName);
+        return named == null ? ImmutableList.of() : ImmutableList.copyOf(named.values());
     }
 
     /**
@@ -155,24 +313,40 @@ public class SimplePolicyStore
 
     @Override
     public int getRulesCount(Policy policy) {
-        return flowRuleList.get((DefaultPolicyId) policy.getPolicyId()).size();
+        return flowRules.ruleCount(policy.getPolicyId().getPolicyId());
 
     }
 
     /**
-     * Return the flow rules list.
+     * Return the flow rules installed on a given device.
      *
-     * @return flow rule list
+     * @param deviceId device ID
+     * @return flow rules
      */
     @Override
-    public Multimap<DefaultPolicyId, DefaultFlowRule> getFlowRulesList() {
+    public Collection<DefaultFlowRule> getFlowRulesForDevice(DeviceId deviceId) {
 
-        return flowRuleList;
+        return flowRules.getRules(deviceId);
     }
 
     @Override
     public Collection<DefaultFlowRule> getFlowRulesForPolicy(Policy policy) {
-        return flowRuleList.get((DefaultPolicyId) policy.getPolicyId());
+        return flowRules.getRules(policy.getPolicyId().getPolicyId());
+    }
+
+    /**
+     * Unregisters the flow rules removed from the device tables, such as
+     * the rules which idle timed out, and purges the corrupt policies left
+     * without rules.
+     */
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            if (event.type() == FlowRuleEvent.Type.RULE_REMOVED
+                    && flowRules.remove(event.subject().id()) != null && !corrupt.isEmpty()) {
+                purgeIfRemoved(PolicyCookie.policyIdOf(event.subject().id().value()));
+            }
+        }
     }
 
 
@@ -16,6 +16,10 @@
 
 package org.osdfreactive.trafficprofiles;
 
+import org.onosproject.net.flow.criteria.Criterion;
+
+import java.util.Set;
+
 /**
  * Creating traffic profiles interface.
  */
@@ -30,6 +34,18 @@ public interface CreateTrafficProfile {
      */
     void createTrafficProfile(String applicationID, String applicationType);
 
+    /**
+     * Creates a traffic profile instance based on application type, traffic
+     * profile id and match criteria. The application type may be null, in
+     * which case the profile matches the traffic selected by its criteria.
+     *
+     * @param applicationType  application type, may be null
+     * @param trafficProfileId traffic profile id
+     * @param criteriaSet      match criteria
+     */
+    void createTrafficProfile(String applicationType, String trafficProfileId,
+                              Set<Criterion> criteriaSet);
+
     /**
      * Returns a traffic profile.
      *
@@ -18,11 +18,15 @@ package org.osdfreactive.trafficprofiles;
 
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.IPv4;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.onosproject.net.flow.criteria.IPProtocolCriterion;
 import org.osdfreactive.appsinfo.ApplicationTypes;
 import org.osdfreactive.appsinfo.TrafficClasses;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -32,6 +36,8 @@ import java.util.logging.Logger;
 @Service
 public class DefaultCreateTrafficProfile implements CreateTrafficProfile {
 
+    private static final int ANY_PROTOCOL = -1;
+
     private final Logger log = Logger.getLogger(getClass().getName());
     private DefaultTrafficProfile trafficProfile;
 
@@ -68,6 +74,24 @@ public class DefaultCreateTrafficProfile implements CreateTrafficProfile {
      * @param trafficProfileId Traffic profile identifier
      */
     public void createTrafficProfile(String applicationType, String trafficProfileId) {
+        createTrafficProfile(applicationType, trafficProfileId, null);
+    }
+
+    /**
+     * Creates a traffic profile instance based on application type, traffic
+     * profile id and match criteria.
+     *
+     * @param applicationType  Type of an application, may be null
+     * @param trafficProfileId Traffic profile identifier
+     * @param criteriaSet      match criteria
+     * @throws IllegalArgumentException if the application is unknown and
+     *                                  there are no criteria, or if the
+     *                                  criteria contradict each other or the
+     *                                  application
+     */
+    @Override
+    public void createTrafficProfile(String applicationType, String trafficProfileId,
+                                     Set<Criterion> criteriaSet) {
         DefaultTrafficProfileId trafficProfileIds;
         TrafficClasses trafficClass = null;
         ApplicationTypes applicationTypes = null;
@@ -75,11 +99,19 @@ public class DefaultCreateTrafficProfile implements CreateTrafficProfile {
 
         trafficProfileIds = new DefaultTrafficProfileId(trafficProfileId);
 
-        switch (applicationType) {
+        switch (applicationType == null ? "" : applicationType) {
             case "WEB":
                 applicationTypes = ApplicationTypes.WEB;
                 trafficClass = ApplicationTypes.WEB.getTrafficClass();
                 break;
+            case "FTP":
+                applicationTypes = ApplicationTypes.FTP;
+                trafficClass = ApplicationTypes.FTP.getTrafficClass();
+                break;
+            case "TFTP":
+                applicationTypes = ApplicationTypes.TFTP;
+                trafficClass = ApplicationTypes.TFTP.getTrafficClass();
+                break;
             case "VOIP":
                 applicationTypes = ApplicationTypes.VOIP;
                 trafficClass = ApplicationTypes.VOIP.getTrafficClass();
@@ -95,14 +127,72 @@ public class DefaultCreateTrafficProfile implements CreateTrafficProfile {
             default:
                 break;
         }
+        validate(applicationType, applicationTypes, criteriaSet);
 
         trafficProfile = DefaultTrafficProfile
                 .builder()
                 .trafficProfileId(trafficProfileIds)
                 .applicationType(applicationTypes)
                 .trafficClass(trafficClass)
+                .criteriaSet(criteriaSet == null || criteriaSet.isEmpty() ? null : criteriaSet)
                 .build();
 
     }
 
+    /**
+     * Checks that a profile selects some traffic: it has an application or
+     * criteria, and its criteria and application agree on the IP protocol.
+     *
+     * @param applicationType  application type given, may be null
+     * @param applicationTypes application type resolved, may be null
+     * @param criteriaSet      match criteria, may be null
+     * @throws IllegalArgumentException if the profile selects no traffic
+     */
+    private static void validate(String applicationType, ApplicationTypes applicationTypes,
+                                 Set<Criterion> criteriaSet) {
+        boolean noCriteria = criteriaSet == null || criteriaSet.isEmpty();
+        if (applicationTypes == null && noCriteria) {
+            throw new IllegalArgumentException(applicationType == null || applicationType.isEmpty() ?
+                    "no application and no match criteria" :
+                    "unknown application " + applicationType + " and no match criteria");
+        }
+        if (noCriteria) {
+            return;
+        }
+
+        int protocol = applicationTypes == null ? ANY_PROTOCOL :
+                applicationTypes.getTransportProtocol().getProto();
+        for (Criterion criterion : criteriaSet) {
+            if (criterion.type() == Criterion.Type.IP_PROTO) {
+                protocol = checkProtocol(protocol,
+                        ((IPProtocolCriterion) criterion).protocol(), criterion);
+            }
+        }
+        for (Criterion criterion : criteriaSet) {
+            switch (criterion.type()) {
+                case TCP_SRC:
+                case TCP_SRC_MASKED:
+                case TCP_DST:
+                case TCP_DST_MASKED:
+                    protocol = checkProtocol(protocol, IPv4.PROTOCOL_TCP, criterion);
+                    break;
+                case UDP_SRC:
+                case UDP_SRC_MASKED:
+                case UDP_DST:
+                case UDP_DST_MASKED:
+                    protocol = checkProtocol(protocol, IPv4.PROTOCOL_UDP, criterion);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int checkProtocol(int protocol, int required, Criterion criterion) {
+        if (protocol != ANY_PROTOCOL && protocol != required) {
+            throw new IllegalArgumentException(criterion + " contradicts IP protocol " + protocol);
+        }
+        return required;
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.trafficprofiles;
+
+import com.google.common.collect.ImmutableSet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.flow.criteria.Criteria;
+import org.onosproject.net.flow.criteria.Criterion;
+
+import java.util.Set;
+
+/**
+ * Parser of the match criteria of traffic profiles.
+ * <p>
+ * Criteria are given as comma separated field=value pairs, for instance
+ * {@code ip_proto=udp,dscp=46,udp_dst=5000-5003}. Supported fields are
+ * ip_proto, dscp, vlan, ip_src, ip_dst, tcp_src, tcp_dst, udp_src and
+ * udp_dst. A port range must be an aligned block whose size is a power of
+ * two, so that it is matched by one masked port.
+ */
+public final class TrafficCriteria {
+
+    private static final int MAX_PORT = 0xffff;
+
+    private TrafficCriteria() {
+    }
+
+    /**
+     * Parses match criteria.
+     *
+     * @param criteria comma separated field=value pairs, may be null
+     * @return set of criteria, empty if none is given
+     * @throws IllegalArgumentException if a criterion is malformed
+     */
+    public static Set<Criterion> parse(String criteria) {
+        ImmutableSet.Builder<Criterion> criteriaSet = ImmutableSet.builder();
+        if (criteria == null || criteria.trim().isEmpty()) {
+            return criteriaSet.build();
+        }
+        for (String token : criteria.split(",")) {
+            String[] pair = token.trim().split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Malformed criterion " + token);
+            }
+            criteriaSet.add(criterion(pair[0].trim(), pair[1].trim()));
+        }
+        return criteriaSet.build();
+    }
+
+    private static Criterion criterion(String field, String value) {
+        switch (field) {
+            case "ip_proto":
+                return Criteria.matchIPProtocol(ipProtocol(value));
+            case "dscp":
+                return Criteria.matchIPDscp((byte) number(value, 0x3f));
+            case "vlan":
+                return Criteria.matchVlanId(VlanId.vlanId((short) number(value, VlanId.MAX_VLAN)));
+            case "ip_src":
+                return Criteria.matchIPSrc(Ip4Prefix.valueOf(value));
+            case "ip_dst":
+                return Criteria.matchIPDst(Ip4Prefix.valueOf(value));
+            case "tcp_src":
+            case "tcp_dst":
+            case "udp_src":
+            case "udp_dst":
+                return portCriterion(field, value);
+            default:
+                throw new IllegalArgumentException("Unsupported match field " + field);
+        }
+    }
+
+    private static short ipProtocol(String value) {
+        switch (value.toLowerCase()) {
+            case "tcp":
+                return IPv4.PROTOCOL_TCP;
+            case "udp":
+                return IPv4.PROTOCOL_UDP;
+            case "icmp":
+                return IPv4.PROTOCOL_ICMP;
+            default:
+                return (short) number(value, 0xff);
+        }
+    }
+
+    /**
+     * Builds the criterion of a port or of an aligned range of ports.
+     */
+    private static Criterion portCriterion(String field, String value) {
+        int low;
+        int high;
+        int dash = value.indexOf('-');
+        if (dash < 0) {
+            low = number(value, MAX_PORT);
+            high = low;
+        } else {
+            low = number(value.substring(0, dash), MAX_PORT);
+            high = number(value.substring(dash + 1), MAX_PORT);
+        }
+        int size = high - low + 1;
+        if (size <= 0 || Integer.bitCount(size) != 1 || low % size != 0) {
+            throw new IllegalArgumentException("Port range " + value +
+                    " is not an aligned block of a power of two ports");
+        }
+        TpPort port = TpPort.tpPort(low);
+        if (size == 1) {
+            switch (field) {
+                case "tcp_src":
+                    return Criteria.matchTcpSrc(port);
+                case "tcp_dst":
+                    return Criteria.matchTcpDst(port);
+                case "udp_src":
+                    return Criteria.matchUdpSrc(port);
+                default:
+                    return Criteria.matchUdpDst(port);
+            }
+        }
+        TpPort mask = TpPort.tpPort(MAX_PORT & ~(size - 1));
+        switch (field) {
+            case "tcp_src":
+                return Criteria.matchTcpSrcMasked(port, mask);
+            case "tcp_dst":
+                return Criteria.matchTcpDstMasked(port, mask);
+            case "udp_src":
+                return Criteria.matchUdpSrcMasked(port, mask);
+            default:
+                return Criteria.matchUdpDstMasked(port, mask);
+        }
+    }
+
+    private static int number(String value, int max) {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number " + value, e);
+        }
+        if (number < 0 || number > max) {
+            throw new IllegalArgumentException("Value " + value + " is out of range");
+        }
+        return number;
+    }
+}
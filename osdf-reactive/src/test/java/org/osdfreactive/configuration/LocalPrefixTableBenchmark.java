@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.configuration;
+
+import com.google.common.collect.Maps;
+import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
+import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
+import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpPrefix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the local prefix table with the String keyed radix tree and
+ * map it replaced in the inter route configuration.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.osdfreactive.configuration.LocalPrefixTableBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalPrefixTableBenchmark {
+
+    // Addresses looked up per invocation, a power of two.
+    private static final int ADDRESSES = 1024;
+    private static final int SUBNET_LENGTH = 24;
+
+    @Param({"16", "256", "4096"})
+    private int prefixes;
+
+    private final InvertedRadixTree<LocalIpPrefixEntry> radixTree =
+            new ConcurrentInvertedRadixTree<>(new DefaultByteArrayNodeFactory());
+    private final Map<String, String> regionMap = Maps.newHashMap();
+    private LocalPrefixTable table;
+    private final int[] addresses = new int[ADDRESSES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(prefixes);
+        LocalPrefixTable.Builder builder = LocalPrefixTable.builder();
+        int[] subnets = new int[prefixes];
+        for (int i = 0; i < prefixes; i++) {
+            // Local /24 subnets of 10.0.0.0/8.
+            subnets[i] = 0x0a000000 | (random.nextInt(1 << 16) << Byte.SIZE);
+            IpPrefix prefix = IpPrefix.valueOf(Ip4Address.valueOf(subnets[i]), SUBNET_LENGTH);
+            LocalIpPrefixEntry entry = new LocalIpPrefixEntry(prefix,
+                    LocalIpPrefixEntry.IpPrefixType.PRIVATE, null, "r" + (i % 8));
+            builder.add(entry);
+            radixTree.put(createBinaryString(prefix), entry);
+            regionMap.put(createBinaryString(prefix), entry.getRegion());
+        }
+        table = builder.build();
+        // Half of the addresses are local.
+        for (int i = 0; i < ADDRESSES; i++) {
+            int host = random.nextInt(1 << Byte.SIZE);
+            addresses[i] = i % 2 == 0 ? subnets[random.nextInt(prefixes)] | host
+                    : 0xc0a80000 | random.nextInt(1 << 16);
+        }
+    }
+
+    private int nextAddress() {
+        next = (next + 1) & (ADDRESSES - 1);
+        return addresses[next];
+    }
+
+    // The String key the inter route configuration used to build.
+    private static String createBinaryString(IpPrefix ipPrefix) {
+        byte[] octets = ipPrefix.address().toOctets();
+        StringBuilder result = new StringBuilder(ipPrefix.prefixLength());
+        result.append("0");
+        for (int i = 0; i < ipPrefix.prefixLength(); i++) {
+            int byteOffset = i / Byte.SIZE;
+            int bitOffset = i % Byte.SIZE;
+            int mask = 1 << (Byte.SIZE - 1 - bitOffset);
+            boolean isSet = (octets[byteOffset] & mask) != 0;
+            result.append(isSet ? "1" : "0");
+        }
+        return result.toString();
+    }
+
+    @Benchmark
+    public boolean radixTreeIsLocal() {
+        IpPrefix prefix = IpPrefix.valueOf(Ip4Address.valueOf(nextAddress()), Ip4Address.BIT_LENGTH);
+        return radixTree.getValuesForKeysPrefixing(createBinaryString(prefix)).iterator().hasNext();
+    }
+
+    @Benchmark
+    public boolean prefixTableIsLocal() {
+        return table.lookup4(nextAddress()) != null;
+    }
+
+    @Benchmark
+    public String regionMapGetRegion() {
+        IpPrefix prefix = IpPrefix.valueOf(Ip4Address.valueOf(nextAddress()), SUBNET_LENGTH);
+        return regionMap.get(createBinaryString(prefix));
+    }
+
+    @Benchmark
+    public LocalIpPrefixEntry prefixTableGetRegion() {
+        return table.lookup4(nextAddress());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LocalPrefixTableBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
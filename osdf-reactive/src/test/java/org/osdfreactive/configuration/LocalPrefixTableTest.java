@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.configuration;
+
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the local prefix table.
+ */
+public class LocalPrefixTableTest {
+
+    private static LocalIpPrefixEntry entry(String prefix, String regionId) {
+        return new LocalIpPrefixEntry(IpPrefix.valueOf(prefix),
+                LocalIpPrefixEntry.IpPrefixType.PRIVATE, null, regionId);
+    }
+
+    private static int ip4(String address) {
+        return Ip4Address.valueOf(address).toInt();
+    }
+
+    private final LocalPrefixTable table = LocalPrefixTable.builder()
+            .add(entry("10.0.0.0/8", "r1"))
+            .add(entry("10.1.0.0/16", "r2"))
+            .add(entry("10.1.2.0/24", "r3"))
+            .add(entry("192.168.1.0/24", "r4"))
+            .add(entry("2001:db8::/32", "r5"))
+            .add(entry("2001:db8:1::/48", "r6"))
+            .build();
+
+    /**
+     * Tests that IPv4 lookups return the longest matching prefix.
+     */
+    @Test
+    public void testLongestMatch4() {
+        assertEquals("r3", table.lookup4(ip4("10.1.2.3")).getRegion());
+        assertEquals("r2", table.lookup4(ip4("10.1.3.3")).getRegion());
+        assertEquals("r1", table.lookup4(ip4("10.200.0.1")).getRegion());
+        assertEquals("r4", table.lookup4(ip4("192.168.1.255")).getRegion());
+        assertNull(table.lookup4(ip4("192.168.2.1")));
+        assertNull(table.lookup4(ip4("11.0.0.1")));
+    }
+
+    /**
+     * Tests the boundaries of a prefix, including addresses whose most
+     * significant bit is set.
+     */
+    @Test
+    public void testPrefixBoundaries() {
+        assertEquals("r4", table.lookup4(ip4("192.168.1.0")).getRegion());
+        assertNull(table.lookup4(ip4("192.168.0.255")));
+        assertEquals("r1", table.lookup4(ip4("10.255.255.255")).getRegion());
+        assertNull(table.lookup4(ip4("9.255.255.255")));
+    }
+
+    /**
+     * Tests that leaf lookups only return prefixes without nested ones.
+     */
+    @Test
+    public void testLeafMatch4() {
+        assertEquals("r3", table.lookupLeaf4(ip4("10.1.2.3")).getRegion());
+        assertEquals("r4", table.lookupLeaf4(ip4("192.168.1.1")).getRegion());
+        assertNull(table.lookupLeaf4(ip4("10.1.3.3")));
+        assertNull(table.lookupLeaf4(ip4("10.200.0.1")));
+        assertNull(table.lookupLeaf4(ip4("11.0.0.1")));
+    }
+
+    /**
+     * Tests that IPv6 lookups return the longest matching prefix.
+     */
+    @Test
+    public void testLongestMatch6() {
+        assertEquals("r6", table.lookup(IpAddress.valueOf("2001:db8:1::1")).getRegion());
+        assertEquals("r5", table.lookup(IpAddress.valueOf("2001:db8:2::1")).getRegion());
+        assertNull(table.lookup(IpAddress.valueOf("2001:db9::1")));
+    }
+
+    /**
+     * Tests prefix lookups and exact matches.
+     */
+    @Test
+    public void testPrefixLookup() {
+        assertEquals("r2", table.lookup(IpPrefix.valueOf("10.1.128.0/17")).getRegion());
+        assertEquals("r1", table.lookup(IpPrefix.valueOf("10.0.0.0/9")).getRegion());
+        assertNull(table.lookup(IpPrefix.valueOf("0.0.0.0/0")));
+
+        assertEquals("r2", table.exactMatch(IpPrefix.valueOf("10.1.0.0/16")).getRegion());
+        assertNull(table.exactMatch(IpPrefix.valueOf("10.1.0.0/17")));
+        assertEquals("r6", table.exactMatch(IpPrefix.valueOf("2001:db8:1::/48")).getRegion());
+    }
+
+    /**
+     * Tests that a prefix added twice resolves to its last entry, which
+     * replaces the first one.
+     */
+    @Test
+    public void testReplacedPrefix() {
+        LocalPrefixTable replaced = LocalPrefixTable.builder()
+                .add(entry("10.0.0.0/8", "r1"))
+                .add(entry("10.1.0.0/16", "r2"))
+                .add(entry("10.0.0.0/8", "r7"))
+                .add(entry("2001:db8::/32", "r5"))
+                .add(entry("2001:db8::/32", "r8"))
+                .build();
+        assertEquals(3, replaced.size());
+        assertEquals("r7", replaced.lookup4(ip4("10.0.0.1")).getRegion());
+        assertEquals("r2", replaced.lookup4(ip4("10.1.0.1")).getRegion());
+        assertEquals("r8", replaced.lookup(IpAddress.valueOf("2001:db8::1")).getRegion());
+    }
+
+    /**
+     * Tests the default route and the empty table.
+     */
+    @Test
+    public void testDefaultRouteAndEmpty() {
+        LocalPrefixTable withDefault = LocalPrefixTable.builder()
+                .add(entry("0.0.0.0/0", "r0"))
+                .add(entry("10.0.0.0/8", "r1"))
+                .build();
+        assertEquals("r0", withDefault.lookup4(ip4("8.8.8.8")).getRegion());
+        assertEquals("r1", withDefault.lookup4(ip4("10.0.0.1")).getRegion());
+
+        assertEquals(0, LocalPrefixTable.EMPTY.size());
+        assertNull(LocalPrefixTable.EMPTY.lookup4(ip4("10.0.0.1")));
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.networkoperations;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.osgi.ComponentContextAdapter;
+import org.onlab.packet.MacAddress;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreServiceAdapter;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperation;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleServiceAdapter;
+import org.onosproject.net.flow.TrafficSelector;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.DefaultPolicyId;
+import org.osdfreactive.policies.Policy;
+import org.osdfreactive.policies.PolicyCookie;
+import org.osdfreactive.policystorage.PolicyListener;
+import org.osdfreactive.policystorage.PolicyService;
+import org.osdfreactive.policystorage.PolicyState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the path installer and of its policy rule accounting.
+ */
+public class PathInstallManagerTest {
+
+    private static final ApplicationId INTRA_APP =
+            new DefaultApplicationId(1, "org.onosproject.PolicyBasedRouting");
+    private static final ApplicationId INTER_APP =
+            new DefaultApplicationId(2, "org.onosproject.InterRouting");
+    private static final ApplicationId OTHER_APP =
+            new DefaultApplicationId(3, "org.onosproject.fwd");
+    private static final DeviceId DEVICE = DeviceId.deviceId("of:0000000000000001");
+    private static final int PRIORITY = 10;
+    private static final int TIMEOUT = 10;
+
+    private PathInstallManager manager;
+    private TestFlowRuleService flowRuleService;
+    private TestPolicyService policyService;
+
+    @Before
+    public void setUp() {
+        manager = new PathInstallManager();
+        flowRuleService = new TestFlowRuleService();
+        policyService = new TestPolicyService();
+        manager.flowRuleService = flowRuleService;
+        manager.policyService = policyService;
+        manager.pipelineService = new TestPipelineService();
+        manager.coreService = new TestCoreService();
+        manager.activate(new TestComponentContext());
+    }
+
+    @After
+    public void tearDown() {
+        manager.deactivate();
+    }
+
+    private static DefaultPolicy policy(int id) {
+        return DefaultPolicy.builder()
+                .policyId(new DefaultPolicyId(id, "policy" + id))
+                .priority(PRIORITY)
+                .build();
+    }
+
+    private static TrafficSelector selector(String dstMac) {
+        return DefaultTrafficSelector.builder()
+                .matchEthDst(MacAddress.valueOf(dstMac))
+                .build();
+    }
+
+    private static DefaultFlowRule policyRule(ApplicationId appId, Policy policy, TrafficSelector selector) {
+        return (DefaultFlowRule) DefaultFlowRule.builder()
+                .withPriority(PRIORITY)
+                .makeTemporary(TIMEOUT)
+                .forDevice(DEVICE)
+                .withSelector(selector)
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withCookie(PolicyCookie.of(appId, policy, DEVICE, selector, PRIORITY, 0))
+                .forTable(0)
+                .build();
+    }
+
+    /**
+     * Tests that a rule installed by the installer is recorded with its
+     * policy and counted for its device and policy.
+     */
+    @Test
+    public void testInstalledRuleCounted() {
+        DefaultPolicy policy = policy(7);
+        DefaultFlowRule rule = policyRule(INTRA_APP, policy, selector("00:00:00:00:00:01"));
+
+        assertTrue(manager.install(policy, ImmutableList.of(rule)).join());
+
+        assertEquals(ImmutableList.of(rule), policyService.rules);
+        assertEquals(ImmutableMap.of(DEVICE, 1L), manager.ruleCountsByDevice());
+        assertEquals(ImmutableMap.of(7, 1L), manager.ruleCountsByPolicy());
+
+        flowRuleService.post(FlowRuleEvent.Type.RULE_REMOVED, rule);
+        assertEquals(ImmutableMap.of(DEVICE, 0L), manager.ruleCountsByDevice());
+        assertEquals(ImmutableMap.of(7, 0L), manager.ruleCountsByPolicy());
+    }
+
+    /**
+     * Tests that the rules of both routing applications are counted, and
+     * the rules of other applications are not.
+     */
+    @Test
+    public void testOtherApplicationsIgnored() {
+        DefaultPolicy policy = policy(7);
+        flowRuleService.post(FlowRuleEvent.Type.RULE_ADDED,
+                policyRule(INTER_APP, policy, selector("00:00:00:00:00:01")));
+        flowRuleService.post(FlowRuleEvent.Type.RULE_ADDED,
+                policyRule(OTHER_APP, policy, selector("00:00:00:00:00:02")));
+        flowRuleService.post(FlowRuleEvent.Type.RULE_ADDED, DefaultFlowRule.builder()
+                .withPriority(PRIORITY)
+                .makePermanent()
+                .forDevice(DEVICE)
+                .withSelector(selector("00:00:00:00:00:03"))
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .fromApp(OTHER_APP)
+                .build());
+
+        assertEquals(ImmutableMap.of(DEVICE, 1L), manager.ruleCountsByDevice());
+        assertEquals(ImmutableMap.of(7, 1L), manager.ruleCountsByPolicy());
+    }
+
+    /**
+     * Tests that a failed batch still records its rules and leaves the
+     * policy state alone.
+     */
+    @Test
+    public void testFailedBatch() {
+        DefaultPolicy policy = policy(7);
+        DefaultFlowRule rule = policyRule(INTRA_APP, policy, selector("00:00:00:00:00:01"));
+        flowRuleService.fail = true;
+
+        assertEquals(Boolean.FALSE, manager.install(policy, ImmutableList.of(rule)).join());
+
+        assertEquals(ImmutableList.of(rule), policyService.rules);
+        assertNull(policyService.state);
+        assertTrue(manager.ruleCountsByPolicy().isEmpty());
+    }
+
+    /**
+     * Flow rule service applying the operations of a batch at once and
+     * notifying the added rules.
+     */
+    private static class TestFlowRuleService extends FlowRuleServiceAdapter {
+        private final List<FlowRuleListener> listeners = new ArrayList<>();
+        private boolean fail;
+
+        @Override
+        public void addListener(FlowRuleListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(FlowRuleListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void apply(FlowRuleOperations ops) {
+            if (fail) {
+                ops.callback().onError(ops);
+                return;
+            }
+            for (Set<FlowRuleOperation> stage : ops.stages()) {
+                stage.forEach(op -> post(FlowRuleEvent.Type.RULE_ADDED, op.rule()));
+            }
+            ops.callback().onSuccess(ops);
+        }
+
+        void post(FlowRuleEvent.Type type, FlowRule rule) {
+            FlowRuleEvent event = new FlowRuleEvent(type, rule);
+            listeners.forEach(listener -> listener.event(event));
+        }
+    }
+
+    private static class TestCoreService extends CoreServiceAdapter {
+        @Override
+        public ApplicationId registerApplication(String name) {
+            return INTER_APP.name().equals(name) ? INTER_APP : INTRA_APP;
+        }
+    }
+
+    private static class TestComponentContext extends ComponentContextAdapter {
+        @Override
+        public Dictionary getProperties() {
+            return new Hashtable<>();
+        }
+    }
+
+    private static class TestPipelineService implements PacketPipelineService {
+        @Override
+        public boolean submit(int flowHash, Runnable task) {
+            task.run();
+            return true;
+        }
+
+        @Override
+        public void recordLatency(PipelineStage stage, long nanos) {
+        }
+
+        @Override
+        public Map<PipelineStage, StageStatistics> getStageStatistics() {
+            return ImmutableMap.of();
+        }
+
+        @Override
+        public List<Integer> getQueueDepths() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public long rejectedCount() {
+            return 0;
+        }
+    }
+
+    /**
+     * Policy service recording the rules and the last state it is given.
+     */
+    private static class TestPolicyService implements PolicyService {
+        private final List<DefaultFlowRule> rules = new ArrayList<>();
+        private PolicyState state;
+
+        @Override
+        public void addFlowRule(Policy policy, DefaultFlowRule flowRule) {
+            rules.add(flowRule);
+        }
+
+        @Override
+        public void updatePolicyState(Policy policy, PolicyState state) {
+            this.state = state;
+        }
+
+        @Override
+        public Iterable<Policy> getPolicies() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public void addCurrent(Policy policy) {
+        }
+
+        @Override
+        public Iterable<Policy> getCurrentPolicies() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public void removeCurrentPolicy(Policy policy) {
+        }
+
+        @Override
+        public Policy getPolicy(String policyId) {
+            return null;
+        }
+
+        @Override
+        public Collection<Policy> getPoliciesByName(String policyName) {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Map<DefaultPolicyId, Policy> getCurrentPolicyMap() {
+            return ImmutableMap.of();
+        }
+
+        @Override
+        public int getRulesCount(Policy policy) {
+            return 0;
+        }
+
+        @Override
+        public Collection<DefaultFlowRule> getFlowRulesForDevice(DeviceId deviceId) {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Collection<DefaultFlowRule> getFlowRulesForPolicy(Policy policy) {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public void addListener(PolicyListener listener) {
+        }
+
+        @Override
+        public void removeListener(PolicyListener listener) {
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.HostId;
+import org.onosproject.net.flow.criteria.Criteria;
+import org.onosproject.net.region.DefaultRegion;
+import org.onosproject.net.region.Region;
+import org.onosproject.net.region.RegionId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.osdfreactive.appsinfo.ApplicationTypes;
+import org.osdfreactive.networkoperations.OperationsList;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.DefaultPolicyId;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfileId;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the classification of packets and the update of the
+ * classifier with 10k policies, spread over one or more region pairs.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.osdfreactive.policyparser.DefaultPolicyClassifierBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DefaultPolicyClassifierBenchmark {
+
+    private static final int POLICIES = 10000;
+    // Packets classified per invocation, a power of two.
+    private static final int PACKETS = 1024;
+    private static final int HOSTS = 256;
+    private static final ApplicationTypes[] APP_TYPES = {
+            ApplicationTypes.WEB, ApplicationTypes.FTP,
+            ApplicationTypes.VOIP, ApplicationTypes.VIDEO_STREAMING
+    };
+
+    @Param({"1", "10"})
+    private int regions;
+
+    private final DefaultPolicyClassifier classifier = new DefaultPolicyClassifier();
+    private final Packet[] packets = new Packet[PACKETS];
+    private DefaultPolicy[] policies;
+    private int next;
+
+    /**
+     * Packet with the hosts and regions it is classified with.
+     */
+    private static final class Packet {
+        private final Ethernet eth;
+        private final HostId srcHost;
+        private final HostId dstHost;
+        private final String srcRegion;
+        private final String dstRegion;
+
+        private Packet(Ethernet eth, String srcRegion, String dstRegion) {
+            this.eth = eth;
+            this.srcHost = HostId.hostId(eth.getSourceMAC());
+            this.dstHost = HostId.hostId(eth.getDestinationMAC());
+            this.srcRegion = srcRegion;
+            this.dstRegion = dstRegion;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(regions);
+        Region[] regionList = new Region[regions];
+        for (int i = 0; i < regions; i++) {
+            regionList[i] = new DefaultRegion(RegionId.regionId("r" + i), "r" + i, Region.Type.METRO,
+                    DefaultAnnotations.EMPTY, ImmutableList.of());
+        }
+
+        policies = new DefaultPolicy[POLICIES];
+        for (int i = 0; i < POLICIES; i++) {
+            policies[i] = policy(i, random,
+                    regionList[random.nextInt(regions)], regionList[random.nextInt(regions)]);
+            classifier.add(policies[i]);
+        }
+
+        for (int i = 0; i < PACKETS; i++) {
+            ApplicationTypes appType = APP_TYPES[random.nextInt(APP_TYPES.length)];
+            int port = appType.getApplicationPort().getApplicationPort();
+            packets[i] = new Packet(packet(random, random.nextBoolean(), port),
+                    "r" + random.nextInt(regions), "r" + random.nextInt(regions));
+        }
+    }
+
+    // A quarter of the policies each are restricted to hosts, to a source
+    // address, to a DSCP value or to their application only.
+    private static DefaultPolicy policy(int id, Random random, Region srcRegion, Region dstRegion) {
+        DefaultTrafficProfile.Builder profile = DefaultTrafficProfile.builder()
+                .trafficProfileId(new DefaultTrafficProfileId("profile" + id));
+        List<HostId> srcHosts = ImmutableList.of();
+        switch (id % 4) {
+            case 0:
+                profile.applicationType(APP_TYPES[random.nextInt(APP_TYPES.length)]);
+                srcHosts = ImmutableList.of(host(random.nextInt(HOSTS)));
+                break;
+            case 1:
+                profile.applicationType(APP_TYPES[random.nextInt(APP_TYPES.length)])
+                        .criteriaSet(ImmutableSet.of(Criteria.matchIPSrc(
+                                address(random.nextInt(HOSTS)).toIpPrefix())));
+                break;
+            case 2:
+                profile.criteriaSet(ImmutableSet.of(Criteria.matchIPProtocol(IPv4.PROTOCOL_TCP),
+                        Criteria.matchIPDscp((byte) (1 + random.nextInt(63)))));
+                break;
+            default:
+                profile.applicationType(APP_TYPES[random.nextInt(APP_TYPES.length)]);
+                break;
+        }
+        return DefaultPolicy.builder()
+                .policyId(new DefaultPolicyId(id, "policy" + id))
+                .priority(random.nextInt(POLICIES))
+                .trafficProfile(profile.build())
+                .action(OperationsList.INTRA_ROUTE)
+                .srcHostsList(srcHosts)
+                .dstHostsList(ImmutableList.of())
+                .srcRegion(srcRegion)
+                .dstRegion(dstRegion)
+                .build();
+    }
+
+    private static HostId host(int index) {
+        return HostId.hostId(MacAddress.valueOf(index + 1L));
+    }
+
+    private static Ip4Address address(int index) {
+        return Ip4Address.valueOf(0x0a000001 + index);
+    }
+
+    private static Ethernet packet(Random random, boolean tcp, int dstPort) {
+        int src = random.nextInt(HOSTS);
+        int dst = random.nextInt(HOSTS);
+        IPv4 ipv4 = new IPv4();
+        ipv4.setSourceAddress(address(src).toInt());
+        ipv4.setDestinationAddress(address(dst).toInt());
+        if (tcp) {
+            TCP tcpPacket = new TCP();
+            tcpPacket.setSourcePort(1024 + random.nextInt(1 << 15));
+            tcpPacket.setDestinationPort(dstPort);
+            ipv4.setProtocol(IPv4.PROTOCOL_TCP);
+            ipv4.setPayload(tcpPacket);
+        } else {
+            UDP udpPacket = new UDP();
+            udpPacket.setSourcePort(1024 + random.nextInt(1 << 15));
+            udpPacket.setDestinationPort(dstPort);
+            ipv4.setProtocol(IPv4.PROTOCOL_UDP);
+            ipv4.setPayload(udpPacket);
+        }
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setSourceMACAddress(MacAddress.valueOf(src + 1L));
+        eth.setDestinationMACAddress(MacAddress.valueOf(dst + 1L));
+        eth.setPayload(ipv4);
+        return eth;
+    }
+
+    @Benchmark
+    public DefaultPolicy classify() {
+        next = (next + 1) & (PACKETS - 1);
+        Packet packet = packets[next];
+        return classifier.classify(OperationsList.INTRA_ROUTE, packet.srcRegion, packet.dstRegion,
+                packet.eth, packet.srcHost, packet.dstHost);
+    }
+
+    @Benchmark
+    public int update() {
+        next = (next + 1) % POLICIES;
+        DefaultPolicy policy = policies[next];
+        classifier.add(DefaultPolicy.builder(policy).priority(policy.getPriority() + 1).build());
+        classifier.add(policy);
+        return classifier.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DefaultPolicyClassifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
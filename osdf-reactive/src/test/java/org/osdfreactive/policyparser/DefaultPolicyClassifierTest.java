@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Data;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TCP;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.HostId;
+import org.onosproject.net.flow.criteria.Criteria;
+import org.onosproject.net.region.DefaultRegion;
+import org.onosproject.net.region.Region;
+import org.onosproject.net.region.RegionId;
+import org.osdfreactive.appsinfo.ApplicationTypes;
+import org.osdfreactive.networkoperations.OperationsList;
+import org.osdfreactive.policies.DefaultPolicy;
+import org.osdfreactive.policies.DefaultPolicyId;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfileId;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the tuple space search policy classifier.
+ */
+public class DefaultPolicyClassifierTest {
+
+    private static final Region R1 = region("r1");
+    private static final Region R2 = region("r2");
+    private static final MacAddress MAC1 = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress MAC2 = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final MacAddress MAC3 = MacAddress.valueOf("00:00:00:00:00:03");
+    private static final HostId H1 = HostId.hostId(MAC1);
+    private static final HostId H2 = HostId.hostId(MAC2);
+    private static final HostId H3 = HostId.hostId(MAC3);
+    private static final int HTTP_PORT = 80;
+    private static final int CLIENT_PORT = 40000;
+
+    private DefaultPolicyClassifier classifier;
+
+    @Before
+    public void setUp() {
+        classifier = new DefaultPolicyClassifier();
+    }
+
+    private static Region region(String id) {
+        return new DefaultRegion(RegionId.regionId(id), id, Region.Type.METRO,
+                DefaultAnnotations.EMPTY, ImmutableList.of());
+    }
+
+    private static DefaultTrafficProfile webProfile() {
+        return DefaultTrafficProfile.builder()
+                .trafficProfileId(new DefaultTrafficProfileId("web"))
+                .applicationType(ApplicationTypes.WEB)
+                .trafficClass(ApplicationTypes.WEB.getTrafficClass())
+                .build();
+    }
+
+    private static DefaultTrafficProfile tcpProfile() {
+        return DefaultTrafficProfile.builder()
+                .trafficProfileId(new DefaultTrafficProfileId("tcp"))
+                .criteriaSet(ImmutableSet.of(Criteria.matchIPProtocol(IPv4.PROTOCOL_TCP)))
+                .build();
+    }
+
+    private static DefaultPolicy policy(int id, int priority, OperationsList action,
+                                        DefaultTrafficProfile profile,
+                                        List<HostId> srcHosts, List<HostId> dstHosts) {
+        return DefaultPolicy.builder()
+                .policyId(new DefaultPolicyId(id, "policy" + id))
+                .priority(priority)
+                .trafficProfile(profile)
+                .action(action)
+                .srcHostsList(srcHosts)
+                .dstHostsList(dstHosts)
+                .srcRegion(R1)
+                .dstRegion(R1)
+                .build();
+    }
+
+    private static DefaultPolicy policy(int id, int priority, DefaultTrafficProfile profile) {
+        return policy(id, priority, OperationsList.INTRA_ROUTE, profile,
+                ImmutableList.of(), ImmutableList.of());
+    }
+
+    private static Ethernet tcpPacket(MacAddress src, MacAddress dst, int srcPort, int dstPort) {
+        TCP tcp = new TCP();
+        tcp.setSourcePort(srcPort);
+        tcp.setDestinationPort(dstPort);
+        IPv4 ipv4 = new IPv4();
+        ipv4.setSourceAddress("10.0.0.1");
+        ipv4.setDestinationAddress("10.0.0.2");
+        ipv4.setProtocol(IPv4.PROTOCOL_TCP);
+        ipv4.setPayload(tcp);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setSourceMACAddress(src);
+        eth.setDestinationMACAddress(dst);
+        eth.setPayload(ipv4);
+        return eth;
+    }
+
+    private DefaultPolicy classify(Ethernet eth) {
+        return classifier.classify(OperationsList.INTRA_ROUTE, "r1", "r1", eth,
+                HostId.hostId(eth.getSourceMAC()), HostId.hostId(eth.getDestinationMAC()));
+    }
+
+    /**
+     * Tests that nothing is classified without policies.
+     */
+    @Test
+    public void testEmpty() {
+        assertTrue(classifier.isEmpty(OperationsList.INTRA_ROUTE));
+        assertTrue(classifier.isEmpty(OperationsList.INTER_ROUTE));
+        assertEquals(0, classifier.size());
+        assertNull(classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+    }
+
+    /**
+     * Tests that an application policy matches both directions of its
+     * traffic, and no other traffic.
+     */
+    @Test
+    public void testApplicationPort() {
+        DefaultPolicy web = policy(1, 10, webProfile());
+        classifier.add(web);
+        assertFalse(classifier.isEmpty(OperationsList.INTRA_ROUTE));
+        assertTrue(classifier.isEmpty(OperationsList.INTER_ROUTE));
+
+        assertSame(web, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+        assertSame(web, classify(tcpPacket(MAC2, MAC1, HTTP_PORT, CLIENT_PORT)));
+        assertNull(classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, 22)));
+    }
+
+    /**
+     * Tests that the highest priority policy wins across tuples.
+     */
+    @Test
+    public void testPriority() {
+        DefaultPolicy web = policy(1, 10, webProfile());
+        DefaultPolicy tcp = policy(2, 20, tcpProfile());
+        classifier.add(web);
+        classifier.add(tcp);
+        assertEquals(2, classifier.size());
+
+        assertSame(tcp, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+        assertSame(tcp, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, 22)));
+
+        classifier.remove(tcp);
+        DefaultPolicy lowTcp = policy(3, 5, tcpProfile());
+        classifier.add(lowTcp);
+        assertSame(web, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+        assertSame(lowTcp, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, 22)));
+    }
+
+    /**
+     * Tests that a policy with hosts matches its hosts in either direction.
+     */
+    @Test
+    public void testHosts() {
+        DefaultPolicy web = policy(1, 10, OperationsList.INTRA_ROUTE, webProfile(),
+                ImmutableList.of(H1), ImmutableList.of(H2));
+        classifier.add(web);
+
+        assertSame(web, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+        assertSame(web, classify(tcpPacket(MAC2, MAC1, HTTP_PORT, CLIENT_PORT)));
+        assertNull(classify(tcpPacket(MAC1, MAC3, CLIENT_PORT, HTTP_PORT)));
+        assertNull(classify(tcpPacket(MAC3, MAC2, CLIENT_PORT, HTTP_PORT)));
+    }
+
+    /**
+     * Tests that the policies with hosts are tracked per action, so that
+     * the hosts of a packet are only resolved when they may be needed.
+     */
+    @Test
+    public void testHostPolicies() {
+        DefaultPolicy web = policy(1, 10, OperationsList.INTER_ROUTE, webProfile(),
+                ImmutableList.of(), ImmutableList.of());
+        classifier.add(web);
+        assertFalse(classifier.isEmpty(OperationsList.INTER_ROUTE));
+        assertFalse(classifier.hasHostPolicies(OperationsList.INTER_ROUTE));
+
+        DefaultPolicy hosts = policy(2, 20, OperationsList.INTER_ROUTE, webProfile(),
+                ImmutableList.of(H1), ImmutableList.of(H2));
+        classifier.add(hosts);
+        assertTrue(classifier.hasHostPolicies(OperationsList.INTER_ROUTE));
+        assertFalse(classifier.hasHostPolicies(OperationsList.INTRA_ROUTE));
+        Ethernet eth = tcpPacket(MAC1, MAC3, CLIENT_PORT, HTTP_PORT);
+        assertSame(hosts, classifier.classify(OperationsList.INTER_ROUTE, "r1", "r1", eth, H1, H2));
+        assertSame(web, classifier.classify(OperationsList.INTER_ROUTE, "r1", "r1", eth, H1, null));
+
+        classifier.add(DefaultPolicy.builder(hosts).srcHostsList(ImmutableList.of())
+                .dstHostsList(ImmutableList.of()).build());
+        assertFalse(classifier.hasHostPolicies(OperationsList.INTER_ROUTE));
+    }
+
+    /**
+     * Tests that policies are classified between their own regions only.
+     */
+    @Test
+    public void testRegions() {
+        DefaultPolicy web = DefaultPolicy.builder(policy(1, 10, webProfile()))
+                .dstRegion(R2)
+                .build();
+        classifier.add(web);
+        Ethernet eth = tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT);
+
+        assertSame(web, classifier.classify(OperationsList.INTRA_ROUTE, "r1", "r2", eth, H1, H2));
+        assertNull(classifier.classify(OperationsList.INTRA_ROUTE, "r2", "r1", eth, H1, H2));
+        assertNull(classifier.classify(OperationsList.INTER_ROUTE, "r1", "r2", eth, H1, H2));
+    }
+
+    /**
+     * Tests that adding a policy again replaces it, and that removing it
+     * empties the classifier.
+     */
+    @Test
+    public void testAddRemove() {
+        DefaultPolicy web = policy(1, 10, webProfile());
+        classifier.add(web);
+        DefaultPolicy updated = DefaultPolicy.builder(web).priority(30).build();
+        classifier.add(updated);
+        assertEquals(1, classifier.size());
+        assertSame(updated, classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+
+        classifier.remove(updated);
+        assertEquals(0, classifier.size());
+        assertTrue(classifier.isEmpty(OperationsList.INTRA_ROUTE));
+        assertNull(classify(tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT)));
+    }
+
+    /**
+     * Tests that a policy added again with another traffic profile and
+     * regions leaves its previous tuple.
+     */
+    @Test
+    public void testReAddMoved() {
+        DefaultPolicy web = policy(1, 10, webProfile());
+        classifier.add(web);
+        DefaultPolicy moved = DefaultPolicy.builder(policy(1, 10, tcpProfile()))
+                .dstRegion(R2)
+                .build();
+        classifier.add(moved);
+        assertEquals(1, classifier.size());
+
+        Ethernet eth = tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT);
+        assertNull(classify(eth));
+        assertSame(moved, classifier.classify(OperationsList.INTRA_ROUTE, "r1", "r2", eth, H1, H2));
+
+        classifier.remove(web);
+        assertEquals(0, classifier.size());
+        assertNull(classifier.classify(OperationsList.INTRA_ROUTE, "r1", "r2", eth, H1, H2));
+    }
+
+    /**
+     * Tests that a non-first fragment, whose payload is not parsed, is
+     * classified by its protocol only.
+     */
+    @Test
+    public void testFragment() {
+        DefaultPolicy web = policy(1, 20, webProfile());
+        DefaultPolicy tcp = policy(2, 10, tcpProfile());
+        classifier.add(web);
+        classifier.add(tcp);
+        Ethernet eth = tcpPacket(MAC1, MAC2, CLIENT_PORT, HTTP_PORT);
+        ((IPv4) eth.getPayload()).setPayload(new Data(new byte[8]));
+
+        assertSame(tcp, classify(eth));
+    }
+}
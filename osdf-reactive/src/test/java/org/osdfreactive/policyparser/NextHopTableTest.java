@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.provider.ProviderId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the all-pairs next-hop table.
+ */
+public class NextHopTableTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final int RING_SIZE = 300;
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static DeviceId device(int i) {
+        return DeviceId.deviceId("of:" + String.format("%016x", i));
+    }
+
+    private static Set<DeviceId> devices(int count) {
+        ImmutableSet.Builder<DeviceId> devices = ImmutableSet.builder();
+        for (int i = 0; i < count; i++) {
+            devices.add(device(i));
+        }
+        return devices.build();
+    }
+
+    /**
+     * Adds the links of a bidirectional connection between two devices.
+     */
+    private static void connect(List<Link> links, int a, int b) {
+        ConnectPoint pa = new ConnectPoint(device(a), PortNumber.portNumber(1000L + b));
+        ConnectPoint pb = new ConnectPoint(device(b), PortNumber.portNumber(1000L + a));
+        links.add(DefaultLink.builder().providerId(PID).src(pa).dst(pb)
+                .type(Link.Type.DIRECT).build());
+        links.add(DefaultLink.builder().providerId(PID).src(pb).dst(pa)
+                .type(Link.Type.DIRECT).build());
+    }
+
+    private static List<Link> ring(int size) {
+        List<Link> links = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            connect(links, i, (i + 1) % size);
+        }
+        return links;
+    }
+
+    private static void assertContiguous(List<Link> path, DeviceId src, DeviceId dst) {
+        DeviceId current = src;
+        for (Link link : path) {
+            assertEquals(current, link.src().deviceId());
+            current = link.dst().deviceId();
+        }
+        assertEquals(dst, current);
+    }
+
+    /**
+     * Tests the shortest path around a ring, in both directions.
+     */
+    @Test
+    public void testRingPath() {
+        NextHopTable table = NextHopTable.build(devices(10), ring(10), pool);
+        assertEquals(10, table.size());
+
+        List<Link> path = table.path(device(0), device(4));
+        assertNotNull(path);
+        assertEquals(4, path.size());
+        assertContiguous(path, device(0), device(4));
+
+        path = table.path(device(0), device(7));
+        assertEquals(3, path.size());
+        assertContiguous(path, device(0), device(7));
+    }
+
+    /**
+     * Tests that there is no path to itself, to a device outside of the
+     * table, or between disconnected devices.
+     */
+    @Test
+    public void testNoPath() {
+        List<Link> links = new ArrayList<>();
+        connect(links, 0, 1);
+        connect(links, 2, 3);
+        NextHopTable table = NextHopTable.build(devices(4), links, pool);
+
+        assertNull(table.path(device(0), device(0)));
+        assertNull(table.path(device(0), device(9)));
+        assertNull(table.path(device(0), device(2)));
+        assertNotNull(table.path(device(2), device(3)));
+    }
+
+    /**
+     * Tests that links leaving the set of devices are not used.
+     */
+    @Test
+    public void testLinksOutsideDevices() {
+        List<Link> links = ring(6);
+        // Shortcut through a device which is not part of the table.
+        connect(links, 0, 100);
+        connect(links, 100, 3);
+        NextHopTable table = NextHopTable.build(devices(6), links, pool);
+
+        List<Link> path = table.path(device(0), device(3));
+        assertEquals(3, path.size());
+        assertContiguous(path, device(0), device(3));
+    }
+
+    /**
+     * Tests a ring of 300 devices with random chords: every path is
+     * contiguous and no longer than the way around the ring, and a chord
+     * is taken when it is shorter.
+     */
+    @Test
+    public void testLargeRingWithChords() {
+        List<Link> links = ring(RING_SIZE);
+        Random random = new Random(42);
+        for (int i = 0; i < RING_SIZE / 10; i++) {
+            connect(links, random.nextInt(RING_SIZE), random.nextInt(RING_SIZE));
+        }
+        connect(links, 0, RING_SIZE / 2);
+
+        NextHopTable table = NextHopTable.build(devices(RING_SIZE), links, pool);
+        assertEquals(RING_SIZE, table.size());
+
+        for (int dst = 1; dst < RING_SIZE; dst += 7) {
+            List<Link> path = table.path(device(0), device(dst));
+            assertNotNull(path);
+            assertContiguous(path, device(0), device(dst));
+            assertTrue(path.size() <= Math.min(dst, RING_SIZE - dst));
+        }
+        assertEquals(1, table.path(device(0), device(RING_SIZE / 2)).size());
+        assertTrue(table.path(device(0), device(RING_SIZE / 2 + 4)).size() <= 5);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.osdfreactive.policyparser;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.TpPort;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.criteria.Criteria;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.osdfreactive.appsinfo.ApplicationTypes;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfile;
+import org.osdfreactive.trafficprofiles.DefaultTrafficProfileId;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the host selectors of the selector template.
+ */
+public class SelectorTemplateTest {
+
+    private static final Ip4Address IP1 = Ip4Address.valueOf("10.0.0.1");
+    private static final Ip4Address IP2 = Ip4Address.valueOf("10.0.0.2");
+    private static final TpPort HTTP_PORT = TpPort.tpPort(80);
+    private static final byte DSCP = 46;
+
+    private static SelectorTemplate template(ApplicationTypes appType, Set<Criterion> criteria) {
+        DefaultTrafficProfile profile = DefaultTrafficProfile.builder()
+                .trafficProfileId(new DefaultTrafficProfileId("profile"))
+                .applicationType(appType)
+                .criteriaSet(criteria)
+                .build();
+        return SelectorTemplate.compile(profile, true, true, false);
+    }
+
+    /**
+     * Tests that both directions match the application port and the
+     * criteria of the profile.
+     */
+    @Test
+    public void testApplicationCriteria() {
+        SelectorTemplate template = template(ApplicationTypes.WEB,
+                ImmutableSet.of(Criteria.matchIPDscp(DSCP)));
+        assertTrue(template.isExpressible());
+
+        TrafficSelector forward = template.hostSelector(IP1, IP2, false).build();
+        assertEquals(DefaultTrafficSelector.builder()
+                .matchEthType(Ethernet.TYPE_IPV4)
+                .matchIPSrc(IP1.toIpPrefix())
+                .matchIPDst(IP2.toIpPrefix())
+                .matchIPProtocol(IPv4.PROTOCOL_TCP)
+                .matchTcpDst(HTTP_PORT)
+                .matchIPDscp(DSCP)
+                .build(), forward);
+
+        TrafficSelector reply = template.hostSelector(IP2, IP1, true).build();
+        assertEquals(DefaultTrafficSelector.builder()
+                .matchEthType(Ethernet.TYPE_IPV4)
+                .matchIPSrc(IP2.toIpPrefix())
+                .matchIPDst(IP1.toIpPrefix())
+                .matchIPProtocol(IPv4.PROTOCOL_TCP)
+                .matchTcpSrc(HTTP_PORT)
+                .matchIPDscp(DSCP)
+                .build(), reply);
+    }
+
+    /**
+     * Tests that a port range is matched as is, and that the directions
+     * excluded by the criteria have no selector.
+     */
+    @Test
+    public void testPortRange() {
+        Criterion clientPorts = Criteria.matchTcpSrcMasked(TpPort.tpPort(0x8000), TpPort.tpPort(0x8000));
+        SelectorTemplate template = template(ApplicationTypes.WEB, ImmutableSet.of(clientPorts));
+
+        TrafficSelector forward = template.hostSelector(IP1, IP2, false).build();
+        assertEquals(clientPorts, forward.getCriterion(Criterion.Type.TCP_SRC_MASKED));
+        assertEquals(Criteria.matchTcpDst(HTTP_PORT), forward.getCriterion(Criterion.Type.TCP_DST));
+        // The application port is outside the source port range.
+        assertNull(template.hostSelector(IP2, IP1, true));
+    }
+
+    /**
+     * Tests that address criteria exclude the hosts outside their prefixes.
+     */
+    @Test
+    public void testAddressCriteria() {
+        SelectorTemplate template = template(ApplicationTypes.WEB,
+                ImmutableSet.of(Criteria.matchIPSrc(IP1.toIpPrefix())));
+
+        TrafficSelector forward = template.hostSelector(IP1, IP2, false).build();
+        assertEquals(Criteria.matchIPSrc(IP1.toIpPrefix()), forward.getCriterion(Criterion.Type.IPV4_SRC));
+        assertNull(template.hostSelector(IP2, IP1, true));
+    }
+
+    /**
+     * Tests that port criteria without a transport protocol can not be
+     * expressed as flow rules.
+     */
+    @Test
+    public void testPortWithoutProtocol() {
+        assertFalse(template(null, ImmutableSet.of(Criteria.matchTcpDst(HTTP_PORT))).isExpressible());
+        assertTrue(template(null, ImmutableSet.of(Criteria.matchIPDscp(DSCP))).isExpressible());
+    }
+}